@@ -4,12 +4,19 @@ import static io.joj.reflect.annotation.internal.Check.checkArgument;
 import static io.joj.reflect.annotation.internal.Check.checkState;
 import static java.util.Objects.requireNonNull;
 
+import java.lang.reflect.Field;
 import java.lang.reflect.Method;
-import java.lang.reflect.Proxy;
+import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import io.joj.reflect.annotation.internal.Primitive;
+import io.joj.reflect.annotation.internal.Proxies;
+import io.joj.reflect.cache.Caches;
+import io.joj.reflect.cache.ClassKeyedCache;
+import io.joj.reflect.metrics.Metrics;
 
 /**
  * @author findepi
@@ -17,24 +24,75 @@ import io.joj.reflect.annotation.internal.Primitive;
  */
 public class MethodReferences {
 
+	/*
+	 * Resolved methods, per method reference class. Only non-capturing method references (i.e. ones without instance
+	 * state) are cached, as these always call the same method.
+	 */
+	private static final ClassKeyedCache<ResolvedMethods> resolvedMethods = Caches.newClassKeyedCache(
+			"method-references",
+			methodReferenceClass -> isStateless(methodReferenceClass) ? new ResolvedMethods() : null);
+
 	public static <T> Method getMethod(Class<T> clazz, MethodReference0<T> methodReference) {
+		return getMethod(clazz, methodReference, methodReference);
+	}
+
+	/**
+	 * Variant of {@link #getMethod(Class, MethodReference0)} for method references implementing other functional
+	 * interfaces.
+	 *
+	 * @param methodReference
+	 *            method reference, used as cache key
+	 * @param invoker
+	 *            invokes {@code methodReference} on its argument
+	 */
+	public static <T> Method getMethod(Class<T> clazz, Object methodReference, MethodReference0<T> invoker) {
 		checkArgument(clazz.isInterface(), "currently only interface introspection is supported");
 		requireNonNull(methodReference, "methodReference");
+		requireNonNull(invoker, "invoker");
+
+		ResolvedMethods resolved = resolvedMethods.get(methodReference.getClass());
+		if (resolved != null) {
+			Method method = resolved.methods.get(clazz);
+			if (method != null) {
+				Metrics.current().methodReferenceResolved(clazz, true);
+				return method;
+			}
+		}
 
 		List<Method> calledMethods = new ArrayList<>();
 
-		Object proxy = Proxy.newProxyInstance(
-				Thread.currentThread().getContextClassLoader(),
-				new Class<?>[] { clazz },
+		T proxy = Proxies.newProxyInstance(clazz,
 				(p, method, args) -> {
 					calledMethods.add(method);
 					return Primitive.primitiveToDefault.get(method.getReturnType());
 				});
 
-		methodReference.invokeOn(clazz.cast(proxy));
+		invoker.invokeOn(proxy);
 
 		checkState(calledMethods.size() == 1, "MethodReference is not actually a method reference");
-		return calledMethods.get(0);
+		Metrics.current().methodReferenceResolved(clazz, false);
+		Method method = calledMethods.get(0);
+		if (resolved != null) {
+			resolved.methods.putIfAbsent(clazz, method);
+		}
+		return method;
 	}
 
+	private static boolean isStateless(Class<?> methodReferenceClass) {
+		if (!methodReferenceClass.isSynthetic()) {
+			// not a lambda nor method reference
+			return false;
+		}
+		for (Field field : methodReferenceClass.getDeclaredFields()) {
+			if (!Modifier.isStatic(field.getModifiers())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static final class ResolvedMethods {
+		// usually single entry, as method reference is bound to single interface
+		final ConcurrentMap<Class<?>, Method> methods = new ConcurrentHashMap<>(2);
+	}
 }
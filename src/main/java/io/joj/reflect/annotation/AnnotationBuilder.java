@@ -1,11 +1,24 @@
 package io.joj.reflect.annotation;
 
 import static io.joj.reflect.annotation.SyntheticAnnotationCompleteness.REQUIRE_COMPLETE;
+import static io.joj.reflect.annotation.internal.Check.checkArgument;
 import static java.util.Objects.requireNonNull;
 
 import java.lang.annotation.Annotation;
-import java.lang.reflect.Proxy;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.UnaryOperator;
 
 import org.pcollections.HashPMap;
 import org.pcollections.IntTreePMap;
@@ -13,6 +26,10 @@ import org.pcollections.PMap;
 
 import io.joj.reflect.MethodReference0;
 import io.joj.reflect.MethodReferences;
+import io.joj.reflect.annotation.internal.Proxies;
+import io.joj.reflect.cache.Caches;
+import io.joj.reflect.cache.ClassKeyedCache;
+import io.joj.reflect.metrics.Metrics;
 
 /**
  * Main entry point for building synthetic {@link Annotation} instances.
@@ -25,6 +42,10 @@ import io.joj.reflect.MethodReferences;
  * Incidentally, annotations are designed as immutable, type-safe, null-safe (no {@code null}-s), value-based (in terms
  * of {@link Object#hashCode()} and {@link Object#equals(Object)}) data structures. Perfect!... if only we could
  * instantiate them at run-time! And now we can.
+ * <p>
+ * Synthetic annotations, as well as implementations generated with
+ * {@link io.joj.reflect.annotation.processing.GenerateAnnotationImplementations}, are {@link java.io.Serializable}, in
+ * a compact form holding the annotation type and explicitly provided values only.
  *
  * @author findepi
  */
@@ -32,6 +53,29 @@ public class AnnotationBuilder {
 	private AnnotationBuilder() {
 	}
 
+	/*
+	 * Shared instances of marker annotations (ones without attributes), or null where an instance cannot be attached to
+	 * the type without referencing another class loader.
+	 */
+	private static final ClassKeyedCache<Annotation> markers = Caches.newClassKeyedCache("marker-annotations",
+			type -> newMarker(type.asSubclass(Annotation.class)));
+
+	private static <A extends Annotation> A newMarker(Class<A> annotationClass) {
+		A marker = Proxies.newSerializableProxyInstance(annotationClass, new SyntheticAnnotationInvocationHandler<>(
+				AnnotationSchema.of(annotationClass), new Object[0], REQUIRE_COMPLETE), null);
+		return marker.getClass().getClassLoader() == annotationClass.getClassLoader() ? marker : null;
+	}
+
+	/**
+	 * @return shared instance of marker annotation, or {@code null}
+	 */
+	private static <A extends Annotation> A marker(AnnotationSchema<A> schema) {
+		if (schema.size() != 0) {
+			return null;
+		}
+		return schema.annotationClass().cast(markers.get(schema.annotationClass()));
+	}
+
 	/**
 	 * Low level, type-unsafe, annotation synthesizer taking target annotation type and values. Whenever possible, use
 	 * {@link #builderFor(Class)} instead.
@@ -62,17 +106,175 @@ public class AnnotationBuilder {
 	 *            expected annotation completeness
 	 * @return synthesized annotation. When {@code completeness} is
 	 *         {@link SyntheticAnnotationCompleteness#REQUIRE_COMPLETE}, the returned annotation is complete and correct
-	 *         implementation of {@code annotationClass}.
+	 *         implementation of {@code annotationClass}, compile-time generated one if available (see
+	 *         {@link GeneratedAnnotationFactory}). Otherwise, marker annotations (ones without attributes) are shared
+	 *         instances, and annotations with single {@code value()} attribute have a minimal implementation.
 	 */
 	public static <A extends Annotation> A buildFromMap(Class<A> annotationClass, Map<String, ?> values,
 			SyntheticAnnotationCompleteness completeness) {
 
-		Object syntheticAnnotation = Proxy.newProxyInstance(
-				Thread.currentThread().getContextClassLoader(),
-				new Class<?>[] { annotationClass },
-				new SyntheticAnnotationInvocationHandler<A>(annotationClass, values, completeness));
+		AnnotationSchema<A> schema = AnnotationSchema.of(annotationClass);
+		Optional<GeneratedAnnotationFactory<A>> generatedFactory = completeness == REQUIRE_COMPLETE
+				? GeneratedAnnotations.factoryFor(annotationClass)
+				: Optional.empty();
 
-		return annotationClass.cast(syntheticAnnotation);
+		if (!generatedFactory.isPresent() && requireNonNull(values, "values").isEmpty()) {
+			A marker = marker(schema);
+			if (marker != null) {
+				Metrics.current().annotationBuilt(annotationClass);
+				return marker;
+			}
+		}
+
+		A syntheticAnnotation;
+		try {
+			if (generatedFactory.isPresent()) {
+				syntheticAnnotation = generatedFactory.get().create(values);
+			} else if (values.size() == 1 && schema.isSingleValue() && values.get("value") != null) {
+				syntheticAnnotation = Proxies.newSerializableProxyInstance(annotationClass,
+						SyntheticAnnotationInvocationHandler.ofSingleValue(schema, values.get("value"), completeness));
+			} else {
+				syntheticAnnotation = Proxies.newSerializableProxyInstance(annotationClass,
+						new SyntheticAnnotationInvocationHandler<A>(annotationClass, values, completeness));
+			}
+		} catch (IllegalArgumentException | ClassCastException | NullPointerException e) {
+			Metrics.current().validationFailed(annotationClass);
+			throw e;
+		}
+
+		Metrics.current().annotationBuilt(annotationClass);
+		return syntheticAnnotation;
+	}
+
+	/**
+	 * Annotation synthesizer taking values indexed by {@link AnnotationSchema} slots, {@code null} where not provided.
+	 */
+	static <A extends Annotation> A buildFromSlots(AnnotationSchema<A> schema, Object[] slotValues,
+			SyntheticAnnotationCompleteness completeness) {
+
+		A marker = marker(schema);
+		if (marker != null) {
+			Metrics.current().annotationBuilt(schema.annotationClass());
+			return marker;
+		}
+
+		A syntheticAnnotation;
+		try {
+			SyntheticAnnotationInvocationHandler<A> handler = schema.isSingleValue() && slotValues[0] != null
+					? SyntheticAnnotationInvocationHandler.ofSingleValue(schema, slotValues[0], completeness)
+					: new SyntheticAnnotationInvocationHandler<A>(schema, slotValues, completeness);
+			syntheticAnnotation = Proxies.newSerializableProxyInstance(schema.annotationClass(), handler);
+		} catch (IllegalArgumentException | ClassCastException | NullPointerException e) {
+			Metrics.current().validationFailed(schema.annotationClass());
+			throw e;
+		}
+
+		Metrics.current().annotationBuilt(schema.annotationClass());
+		return syntheticAnnotation;
+	}
+
+	/**
+	 * Synthesizes one annotation per element of {@code variedValues}, used as value of {@code slot}. Other values are
+	 * validated and hashed once, and their holders are shared between the variants.
+	 */
+	static <A extends Annotation> List<A> buildVariants(AnnotationSchema<A> schema, Object[] slotValues, int slot,
+			Iterable<?> variedValues, SyntheticAnnotationCompleteness completeness) {
+
+		List<SyntheticAnnotationInvocationHandler<A>> handlers;
+		try {
+			handlers = SyntheticAnnotationInvocationHandler.variants(schema, slotValues, slot, variedValues,
+					completeness);
+		} catch (IllegalArgumentException | ClassCastException | NullPointerException e) {
+			Metrics.current().validationFailed(schema.annotationClass());
+			throw e;
+		}
+
+		List<A> variants = new ArrayList<>(handlers.size());
+		for (SyntheticAnnotationInvocationHandler<A> handler : handlers) {
+			variants.add(Proxies.newSerializableProxyInstance(schema.annotationClass(), handler));
+			Metrics.current().annotationBuilt(schema.annotationClass());
+		}
+		return variants;
+	}
+
+	/**
+	 * Eagerly prepares everything needed to synthesize annotations of given types (and annotation types nested in them),
+	 * so that the first synthesis does not suffer from cold reflection and class generation. Meant to be called at
+	 * application startup.
+	 *
+	 * @return time it took to prepare each of the types, in order of {@code annotationClasses}
+	 */
+	@SafeVarargs
+	public static Map<Class<? extends Annotation>, Duration> prewarm(Class<? extends Annotation>... annotationClasses) {
+		Map<Class<? extends Annotation>, Duration> timings = new LinkedHashMap<>();
+		for (Class<? extends Annotation> annotationClass : annotationClasses) {
+			timings.put(annotationClass, prewarmType(requireNonNull(annotationClass, "annotationClass")));
+		}
+		return timings;
+	}
+
+	/**
+	 * Like {@link #prewarm(Class...)}, but prepares types in parallel, each in a separate task run by
+	 * {@code executor}. Tasks run with thread context class loader of the calling thread.
+	 *
+	 * @return future of time it took to prepare each of the types, in order of {@code annotationClasses}
+	 */
+	@SafeVarargs
+	public static CompletableFuture<Map<Class<? extends Annotation>, Duration>> prewarm(Executor executor,
+			Class<? extends Annotation>... annotationClasses) {
+
+		requireNonNull(executor, "executor");
+		ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+		List<CompletableFuture<Duration>> tasks = new ArrayList<>();
+		for (Class<? extends Annotation> annotationClass : annotationClasses) {
+			requireNonNull(annotationClass, "annotationClass");
+			tasks.add(CompletableFuture.supplyAsync(() -> {
+				Thread thread = Thread.currentThread();
+				ClassLoader originalClassLoader = thread.getContextClassLoader();
+				thread.setContextClassLoader(contextClassLoader);
+				try {
+					return prewarmType(annotationClass);
+				} finally {
+					thread.setContextClassLoader(originalClassLoader);
+				}
+			}, executor));
+		}
+
+		return CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[tasks.size()]))
+				.thenApply(ignored -> {
+					Map<Class<? extends Annotation>, Duration> timings = new LinkedHashMap<>();
+					for (int i = 0; i < annotationClasses.length; i++) {
+						timings.put(annotationClasses[i], tasks.get(i).join());
+					}
+					return timings;
+				});
+	}
+
+	private static Duration prewarmType(Class<? extends Annotation> annotationClass) {
+		long start = System.nanoTime();
+		prewarmType(annotationClass, new HashSet<>());
+		return Duration.ofNanos(System.nanoTime() - start);
+	}
+
+	private static void prewarmType(Class<? extends Annotation> annotationClass, Set<Class<?>> visited) {
+		if (!visited.add(annotationClass)) {
+			return;
+		}
+		// schema, with accessors and defaults
+		AnnotationSchema<?> schema = AnnotationSchema.of(annotationClass);
+		// implementation class, also used to resolve method references
+		Proxies.prepareSerializable(annotationClass);
+		GeneratedAnnotations.factoryFor(annotationClass);
+
+		for (int slot = 0; slot < schema.size(); slot++) {
+			Class<?> type = schema.getter(slot).getReturnType();
+			if (type.isArray()) {
+				type = type.getComponentType();
+			}
+			if (type.isAnnotation()) {
+				prewarmType(type.asSubclass(Annotation.class), visited);
+			}
+		}
 	}
 
 	/**
@@ -92,11 +294,41 @@ public class AnnotationBuilder {
 	 *   .build();
 	 * </code>
 	 * </pre>
+	 *
+	 * Nested annotations can be specified in place, e.g.:
+	 *
+	 * <pre>
+	 * <code>
+	 * Outer generated = AnnotationBuilder.builderFor(Outer.class)
+	 *   .withNested(Outer::inner).building(inner -&gt; inner
+	 *     .with(Inner::value).returning("x"))
+	 *   .build();
+	 * </code>
+	 * </pre>
+	 *
+	 * Nested annotations built this way are canonicalized, i.e. equal nested annotations are shared, even between
+	 * different enclosing annotations.
 	 */
 	public static <A extends Annotation> Builder<A> builderFor(Class<A> annotationClass) {
 		return new Builder<>(annotationClass);
 	}
 
+	/**
+	 * Method reference to an annotation method returning nested annotation, e.g. {@code Outer::inner}.
+	 */
+	@FunctionalInterface
+	public interface NestedAttribute<A extends Annotation, N extends Annotation> {
+		N invokeOn(A receiver);
+	}
+
+	/**
+	 * Method reference to an annotation method returning array of nested annotations, e.g. {@code Outer::inners}.
+	 */
+	@FunctionalInterface
+	public interface NestedArrayAttribute<A extends Annotation, N extends Annotation> {
+		N[] invokeOn(A receiver);
+	}
+
 	public static final class Builder<A extends Annotation> {
 		private final Class<A> clazz;
 		private final PMap<String, Object> values;
@@ -117,6 +349,23 @@ public class AnnotationBuilder {
 			return new OngoingMethodSpec<>(specedMethodName);
 		}
 
+		public <N extends Annotation> OngoingNestedMethodSpec<N> withNested(NestedAttribute<A, N> methodReference) {
+			requireNonNull(methodReference, "methodReference");
+			Method specedMethod = MethodReferences.getMethod(clazz, methodReference, methodReference::invokeOn);
+			@SuppressWarnings("unchecked") // N is the return type of the method
+			Class<N> nestedClass = (Class<N>) specedMethod.getReturnType();
+			return new OngoingNestedMethodSpec<>(specedMethod.getName(), nestedClass);
+		}
+
+		public <N extends Annotation> OngoingNestedArrayMethodSpec<N> withNestedArray(
+				NestedArrayAttribute<A, N> methodReference) {
+			requireNonNull(methodReference, "methodReference");
+			Method specedMethod = MethodReferences.getMethod(clazz, methodReference, methodReference::invokeOn);
+			@SuppressWarnings("unchecked") // N[] is the return type of the method
+			Class<N> nestedClass = (Class<N>) specedMethod.getReturnType().getComponentType();
+			return new OngoingNestedArrayMethodSpec<>(specedMethod.getName(), nestedClass);
+		}
+
 		public Builder<A> completeness(SyntheticAnnotationCompleteness completeness) {
 			return new Builder<>(clazz, values, completeness);
 		}
@@ -125,6 +374,30 @@ public class AnnotationBuilder {
 			return buildFromMap(clazz, values, completeness);
 		}
 
+		/**
+		 * Builds one annotation per element of {@code variedValues}, each being like {@link #build()} with the
+		 * element as value of the method, e.g. one {@code @Named} per shard id:
+		 *
+		 * <pre>
+		 * <code>
+		 * List&lt;Named&gt; perShard = AnnotationBuilder.builderFor(Named.class)
+		 *   .variants(Named::value, shardIds);
+		 * </code>
+		 * </pre>
+		 *
+		 * Values of other methods are validated and hashed once. Hash code of each variant is computed incrementally,
+		 * from the shared part and the varied value.
+		 *
+		 * @return variants, in order of {@code variedValues}
+		 */
+		public List<A> variants(MethodReference0<A> methodReference, Iterable<?> variedValues) {
+			requireNonNull(variedValues, "variedValues");
+			String variedMethodName = MethodReferences.getMethod(clazz, methodReference).getName();
+			AnnotationSchema<A> schema = AnnotationSchema.of(clazz);
+			return buildVariants(schema, SyntheticAnnotationInvocationHandler.toSlots(schema, values),
+					schema.slotOf(variedMethodName), variedValues, completeness);
+		}
+
 		public final class OngoingMethodSpec<R> {
 			private final String specedMethodName;
 
@@ -136,5 +409,144 @@ public class AnnotationBuilder {
 				return new Builder<>(clazz, values.plus(specedMethodName, value), completeness);
 			}
 		}
+
+		public final class OngoingNestedMethodSpec<N extends Annotation> {
+			private final String specedMethodName;
+			private final Class<N> nestedClass;
+
+			private OngoingNestedMethodSpec(String specedMethodName, Class<N> nestedClass) {
+				this.specedMethodName = requireNonNull(specedMethodName, "specedMethodName");
+				this.nestedClass = requireNonNull(nestedClass, "nestedClass");
+			}
+
+			public Builder<A> returning(N value) {
+				return new Builder<>(clazz, values.plus(specedMethodName, value), completeness);
+			}
+
+			/**
+			 * Specifies value with a builder for the nested annotation.
+			 */
+			public Builder<A> building(UnaryOperator<Builder<N>> nestedSpec) {
+				return returning(buildNested(nestedClass, nestedSpec));
+			}
+		}
+
+		public final class OngoingNestedArrayMethodSpec<N extends Annotation> {
+			private final String specedMethodName;
+			private final Class<N> nestedClass;
+
+			private OngoingNestedArrayMethodSpec(String specedMethodName, Class<N> nestedClass) {
+				this.specedMethodName = requireNonNull(specedMethodName, "specedMethodName");
+				this.nestedClass = requireNonNull(nestedClass, "nestedClass");
+			}
+
+			public Builder<A> returning(N[] value) {
+				return new Builder<>(clazz, values.plus(specedMethodName, value), completeness);
+			}
+
+			/**
+			 * Specifies value with builders for the nested annotations, one per array element.
+			 */
+			@SafeVarargs
+			public final Builder<A> building(UnaryOperator<Builder<N>>... nestedSpecs) {
+				@SuppressWarnings("unchecked") // array of N
+				N[] value = (N[]) Array.newInstance(nestedClass, nestedSpecs.length);
+				for (int i = 0; i < nestedSpecs.length; i++) {
+					value[i] = buildNested(nestedClass, nestedSpecs[i]);
+				}
+				return returning(value);
+			}
+		}
+	}
+
+	/**
+	 * Returns mutable builder for {@code A}, for building many annotations, one at a time, without garbage other than
+	 * the annotations themselves, e.g. in per-request code:
+	 *
+	 * <pre>
+	 * <code>
+	 * // once per thread
+	 * MutableBuilder&lt;Pattern&gt; builder = AnnotationBuilder.mutableBuilderFor(Pattern.class);
+	 * MutableBuilder&lt;Pattern&gt;.Slot&lt;String&gt; regexp = builder.slot(Pattern::regexp);
+	 *
+	 * // per request
+	 * Pattern pattern = regexp.set(requestRegexp).build();
+	 * </code>
+	 * </pre>
+	 *
+	 * Unlike {@link Builder}, mutable builder is not thread-safe, and should be confined to a thread.
+	 */
+	public static <A extends Annotation> MutableBuilder<A> mutableBuilderFor(Class<A> annotationClass) {
+		return new MutableBuilder<>(AnnotationSchema.of(annotationClass));
+	}
+
+	/**
+	 * Mutable, reusable builder holding values in slots, see {@link AnnotationBuilder#mutableBuilderFor(Class)}.
+	 * Methods are resolved once, when {@link Slot}-s are obtained. Values are kept between builds, until set again, or
+	 * cleared.
+	 */
+	public static final class MutableBuilder<A extends Annotation> {
+		private final AnnotationSchema<A> schema;
+		// null where not set
+		private final Object[] slotValues;
+		private SyntheticAnnotationCompleteness completeness = REQUIRE_COMPLETE;
+
+		private MutableBuilder(AnnotationSchema<A> schema) {
+			this.schema = schema;
+			this.slotValues = new Object[schema.size()];
+		}
+
+		/**
+		 * @return setter for value of the method, to be obtained once and reused
+		 */
+		public <R> Slot<R> slot(MethodReference0<A> methodReference) {
+			String methodName = MethodReferences.getMethod(schema.annotationClass(), methodReference).getName();
+			return new Slot<>(schema.slotOf(methodName));
+		}
+
+		public MutableBuilder<A> completeness(SyntheticAnnotationCompleteness completeness) {
+			this.completeness = requireNonNull(completeness, "completeness");
+			return this;
+		}
+
+		/**
+		 * Clears all values.
+		 */
+		public MutableBuilder<A> reset() {
+			Arrays.fill(slotValues, null);
+			return this;
+		}
+
+		/**
+		 * Builds annotation from current values. Values are copied, so the builder can be modified afterwards.
+		 */
+		public A build() {
+			return buildFromSlots(schema, slotValues, completeness);
+		}
+
+		public final class Slot<R> {
+			private final int slot;
+
+			private Slot(int slot) {
+				this.slot = slot;
+			}
+
+			public MutableBuilder<A> set(R value) {
+				slotValues[slot] = requireNonNull(value, "value");
+				return MutableBuilder.this;
+			}
+
+			public MutableBuilder<A> clear() {
+				slotValues[slot] = null;
+				return MutableBuilder.this;
+			}
+		}
+	}
+
+	private static <N extends Annotation> N buildNested(Class<N> nestedClass, UnaryOperator<Builder<N>> nestedSpec) {
+		requireNonNull(nestedSpec, "nestedSpec");
+		Builder<N> nestedBuilder = nestedSpec.apply(builderFor(nestedClass));
+		checkArgument(nestedBuilder != null, "Nested annotation builder cannot be null");
+		return AnnotationInterner.intern(nestedBuilder.build());
 	}
 }
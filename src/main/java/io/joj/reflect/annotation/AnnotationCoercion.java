@@ -0,0 +1,425 @@
+package io.joj.reflect.annotation;
+
+import static io.joj.reflect.annotation.SyntheticAnnotationCompleteness.REQUIRE_COMPLETE;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import io.joj.reflect.annotation.internal.Classes;
+import io.joj.reflect.annotation.internal.Primitive;
+import io.joj.reflect.cache.Caches;
+import io.joj.reflect.cache.ClassKeyedCache;
+import io.joj.reflect.metrics.Metrics;
+
+/**
+ * Opt-in, lenient variant of {@link AnnotationBuilder#buildFromMap(Class, Map)}, converting values to types of
+ * annotation methods, e.g. when values come from configuration. The following conversions are applied, in addition to
+ * passing values of the exact type:
+ * <ul>
+ * <li>widening primitive conversions, e.g. {@code Integer} for {@code long} or {@code float},</li>
+ * <li>{@link Collection}-s and arrays of other type (including primitive ones, e.g. {@code int[]} for {@code long[]})
+ * to arrays, with elements converted; single value to single element array,</li>
+ * <li>{@link String}-s to enum constants (by name) and {@link Class}-es (by binary name, with the thread context class
+ * loader, then with annotation type's class loader),</li>
+ * <li>{@link Map}-s to nested annotations, recursively.</li>
+ * </ul>
+ * Converters are computed once per annotation type, from its schema, so that there is no reflection involved in
+ * converting a value.
+ *
+ * @author findepi
+ */
+public final class AnnotationCoercion<A extends Annotation> {
+
+	private static final ClassKeyedCache<AnnotationCoercion<?>> coercions = Caches.newClassKeyedCache(
+			"annotation-coercions",
+			type -> new AnnotationCoercion<>(AnnotationSchema.of(type.asSubclass(Annotation.class))));
+
+	public static <A extends Annotation> AnnotationCoercion<A> forType(Class<A> annotationClass) {
+		// validate
+		AnnotationSchema.of(annotationClass);
+		@SuppressWarnings("unchecked") // computed for annotationClass
+		AnnotationCoercion<A> coercion = (AnnotationCoercion<A>) coercions.get(annotationClass);
+		return coercion;
+	}
+
+	private final AnnotationSchema<A> schema;
+	private final Converter[] converters;
+
+	private AnnotationCoercion(AnnotationSchema<A> schema) {
+		this.schema = schema;
+		this.converters = new Converter[schema.size()];
+		for (int slot = 0; slot < schema.size(); slot++) {
+			converters[slot] = converter(schema.getter(slot).getReturnType());
+		}
+	}
+
+	/**
+	 * Builds annotation from {@code values}, converted as needed.
+	 *
+	 * @param values
+	 *            map from annotation method name to value
+	 * @return synthesized annotation that is complete and correct implementation of the annotation type
+	 */
+	public A build(Map<String, ?> values) {
+		requireNonNull(values, "values");
+		Object[] slotValues;
+		try {
+			slotValues = convert(SyntheticAnnotationInvocationHandler.toSlots(schema, values));
+		} catch (IllegalArgumentException | ClassCastException | NullPointerException e) {
+			Metrics.current().validationFailed(schema.annotationClass());
+			throw e;
+		}
+		return AnnotationBuilder.buildFromSlots(schema, slotValues, REQUIRE_COMPLETE);
+	}
+
+	/**
+	 * Converts values, in place.
+	 */
+	private Object[] convert(Object[] slotValues) {
+		for (int slot = 0; slot < slotValues.length; slot++) {
+			if (slotValues[slot] != null) {
+				try {
+					slotValues[slot] = converters[slot].convert(slotValues[slot]);
+				} catch (ClassCastException e) {
+					ClassCastException exception = new ClassCastException(
+							format("Invalid value for %s: %s", schema.getter(slot), e.getMessage()));
+					exception.initCause(e);
+					throw exception;
+				}
+			}
+		}
+		return slotValues;
+	}
+
+	@FunctionalInterface
+	private interface Converter {
+		/**
+		 * @param value
+		 *            non-null value
+		 * @return converted value or {@code value} if no conversion applies
+		 */
+		Object convert(Object value);
+	}
+
+	@FunctionalInterface
+	private interface ArrayWidener {
+		/**
+		 * @return widened copy of {@code value}, or {@code null} if it is not a primitive array of narrower type
+		 */
+		Object widen(Object value);
+	}
+
+	@FunctionalInterface
+	private interface ArrayWriter {
+		void set(Object array, int index, Object value);
+	}
+
+	private Converter converter(Class<?> type) {
+		if (type.isArray()) {
+			return arrayConverter(type.getComponentType());
+		}
+		if (type == short.class) {
+			return value -> value instanceof Byte
+					? (Object) ((Byte) value).shortValue()
+					: value;
+		}
+		if (type == int.class) {
+			return value -> value instanceof Byte || value instanceof Short
+					? (Object) ((Number) value).intValue()
+					: value instanceof Character ? (Object) (int) (Character) value : value;
+		}
+		if (type == long.class) {
+			return value -> value instanceof Byte || value instanceof Short || value instanceof Integer
+					? (Object) ((Number) value).longValue()
+					: value instanceof Character ? (Object) (long) (Character) value : value;
+		}
+		if (type == float.class) {
+			return value -> value instanceof Byte || value instanceof Short || value instanceof Integer
+					|| value instanceof Long
+							? (Object) ((Number) value).floatValue()
+							: value instanceof Character ? (Object) (float) (Character) value : value;
+		}
+		if (type == double.class) {
+			return value -> value instanceof Byte || value instanceof Short || value instanceof Integer
+					|| value instanceof Long || value instanceof Float
+							? (Object) ((Number) value).doubleValue()
+							: value instanceof Character ? (Object) (double) (Character) value : value;
+		}
+		if (type.isEnum()) {
+			Map<String, Object> constants = new HashMap<>();
+			for (Object constant : type.getEnumConstants()) {
+				constants.put(((Enum<?>) constant).name(), constant);
+			}
+			return value -> {
+				if (!(value instanceof String)) {
+					return value;
+				}
+				Object constant = constants.get(value);
+				if (constant == null) {
+					throw new IllegalArgumentException(format("No constant %s in %s", value, type));
+				}
+				return constant;
+			};
+		}
+		if (type == Class.class) {
+			ClassLoader loader = schema.annotationClass().getClassLoader();
+			return value -> {
+				if (!(value instanceof String)) {
+					return value;
+				}
+				try {
+					return Classes.forName((String) value, loader);
+				} catch (ClassNotFoundException e) {
+					throw new IllegalArgumentException(format("Class %s not found", value), e);
+				}
+			};
+		}
+		if (type.isAnnotation()) {
+			return value -> {
+				if (!(value instanceof Map)) {
+					return value;
+				}
+				@SuppressWarnings("unchecked") // names are verified when building
+				Map<String, ?> nestedValues = (Map<String, ?>) value;
+				return forType(type.asSubclass(Annotation.class)).build(nestedValues);
+			};
+		}
+		return value -> value;
+	}
+
+	private Converter arrayConverter(Class<?> componentType) {
+		Class<?> arrayType = Array.newInstance(componentType, 0).getClass();
+		Converter elementConverter = converter(componentType);
+		ArrayWriter writer = arrayWriter(componentType);
+		ArrayWidener widener = arrayWidener(componentType);
+		Object emptyArray = Array.newInstance(componentType, 0);
+
+		return value -> {
+			if (arrayType.isInstance(value)) {
+				return value;
+			}
+
+			Object array;
+			if (value instanceof Collection) {
+				Collection<?> elements = (Collection<?>) value;
+				array = newArray(emptyArray, elements.size());
+				Iterator<?> iterator = elements.iterator();
+				for (int i = 0; iterator.hasNext(); i++) {
+					writer.set(array, i, convertElement(elementConverter, iterator.next()));
+				}
+			} else if (value instanceof Object[]) {
+				Object[] elements = (Object[]) value;
+				array = newArray(emptyArray, elements.length);
+				for (int i = 0; i < elements.length; i++) {
+					writer.set(array, i, convertElement(elementConverter, elements[i]));
+				}
+			} else {
+				// primitive array of narrower type, e.g. int[] for long[], or single value
+				array = widener.widen(value);
+				if (array == null) {
+					array = newArray(emptyArray, 1);
+					writer.set(array, 0, elementConverter.convert(value));
+				}
+			}
+			return array;
+		};
+	}
+
+	private static Object convertElement(Converter elementConverter, Object element) {
+		return elementConverter.convert(requireNonNull(element, "annotation value cannot contain null"));
+	}
+
+	private static Object newArray(Object emptyArray, int length) {
+		if (emptyArray instanceof Object[]) {
+			return Arrays.copyOf((Object[]) emptyArray, length);
+		}
+		if (emptyArray instanceof int[]) {
+			return new int[length];
+		}
+		if (emptyArray instanceof long[]) {
+			return new long[length];
+		}
+		if (emptyArray instanceof double[]) {
+			return new double[length];
+		}
+		if (emptyArray instanceof float[]) {
+			return new float[length];
+		}
+		if (emptyArray instanceof short[]) {
+			return new short[length];
+		}
+		if (emptyArray instanceof byte[]) {
+			return new byte[length];
+		}
+		if (emptyArray instanceof char[]) {
+			return new char[length];
+		}
+		return new boolean[length];
+	}
+
+	private static ArrayWriter arrayWriter(Class<?> componentType) {
+		if (!componentType.isPrimitive()) {
+			return (array, index, value) -> ((Object[]) array)[index] = checkElement(componentType, value);
+		}
+		Class<?> wrapper = Primitive.primitiveToWrapper.get(componentType);
+		if (componentType == int.class) {
+			return (array, index, value) -> ((int[]) array)[index] = (Integer) checkElement(wrapper, value);
+		}
+		if (componentType == long.class) {
+			return (array, index, value) -> ((long[]) array)[index] = (Long) checkElement(wrapper, value);
+		}
+		if (componentType == double.class) {
+			return (array, index, value) -> ((double[]) array)[index] = (Double) checkElement(wrapper, value);
+		}
+		if (componentType == float.class) {
+			return (array, index, value) -> ((float[]) array)[index] = (Float) checkElement(wrapper, value);
+		}
+		if (componentType == short.class) {
+			return (array, index, value) -> ((short[]) array)[index] = (Short) checkElement(wrapper, value);
+		}
+		if (componentType == byte.class) {
+			return (array, index, value) -> ((byte[]) array)[index] = (Byte) checkElement(wrapper, value);
+		}
+		if (componentType == char.class) {
+			return (array, index, value) -> ((char[]) array)[index] = (Character) checkElement(wrapper, value);
+		}
+		return (array, index, value) -> ((boolean[]) array)[index] = (Boolean) checkElement(wrapper, value);
+	}
+
+	private static ArrayWidener arrayWidener(Class<?> componentType) {
+		if (componentType == short.class) {
+			return AnnotationCoercion::toShorts;
+		}
+		if (componentType == int.class) {
+			return AnnotationCoercion::toInts;
+		}
+		if (componentType == long.class) {
+			return AnnotationCoercion::toLongs;
+		}
+		if (componentType == float.class) {
+			return AnnotationCoercion::toFloats;
+		}
+		if (componentType == double.class) {
+			return AnnotationCoercion::toDoubles;
+		}
+		return value -> null;
+	}
+
+	private static short[] toShorts(Object value) {
+		if (value instanceof byte[]) {
+			byte[] source = (byte[]) value;
+			short[] result = new short[source.length];
+			for (int i = 0; i < source.length; i++) {
+				result[i] = source[i];
+			}
+			return result;
+		}
+		return null;
+	}
+
+	private static int[] toInts(Object value) {
+		if (value instanceof byte[]) {
+			byte[] source = (byte[]) value;
+			int[] result = new int[source.length];
+			for (int i = 0; i < source.length; i++) {
+				result[i] = source[i];
+			}
+			return result;
+		}
+		if (value instanceof short[]) {
+			short[] source = (short[]) value;
+			int[] result = new int[source.length];
+			for (int i = 0; i < source.length; i++) {
+				result[i] = source[i];
+			}
+			return result;
+		}
+		if (value instanceof char[]) {
+			char[] source = (char[]) value;
+			int[] result = new int[source.length];
+			for (int i = 0; i < source.length; i++) {
+				result[i] = source[i];
+			}
+			return result;
+		}
+		return null;
+	}
+
+	/*
+	 * Wider types convert arrays of types narrower than int through int[], which is exact.
+	 */
+
+	private static long[] toLongs(Object value) {
+		int[] source = value instanceof int[] ? (int[]) value : toInts(value);
+		if (source == null) {
+			return null;
+		}
+		long[] result = new long[source.length];
+		for (int i = 0; i < source.length; i++) {
+			result[i] = source[i];
+		}
+		return result;
+	}
+
+	private static float[] toFloats(Object value) {
+		if (value instanceof long[]) {
+			long[] source = (long[]) value;
+			float[] result = new float[source.length];
+			for (int i = 0; i < source.length; i++) {
+				result[i] = source[i];
+			}
+			return result;
+		}
+		int[] source = value instanceof int[] ? (int[]) value : toInts(value);
+		if (source == null) {
+			return null;
+		}
+		float[] result = new float[source.length];
+		for (int i = 0; i < source.length; i++) {
+			result[i] = source[i];
+		}
+		return result;
+	}
+
+	private static double[] toDoubles(Object value) {
+		if (value instanceof float[]) {
+			float[] source = (float[]) value;
+			double[] result = new double[source.length];
+			for (int i = 0; i < source.length; i++) {
+				result[i] = source[i];
+			}
+			return result;
+		}
+		if (value instanceof long[]) {
+			long[] source = (long[]) value;
+			double[] result = new double[source.length];
+			for (int i = 0; i < source.length; i++) {
+				result[i] = source[i];
+			}
+			return result;
+		}
+		int[] source = value instanceof int[] ? (int[]) value : toInts(value);
+		if (source == null) {
+			return null;
+		}
+		double[] result = new double[source.length];
+		for (int i = 0; i < source.length; i++) {
+			result[i] = source[i];
+		}
+		return result;
+	}
+
+	private static Object checkElement(Class<?> expectedType, Object value) {
+		if (!expectedType.isInstance(value)) {
+			throw new ClassCastException(format("expected %s, got %s", expectedType, value.getClass()));
+		}
+		return value;
+	}
+}
@@ -0,0 +1,213 @@
+package io.joj.reflect.annotation;
+
+import static io.joj.reflect.annotation.internal.Check.checkArgument;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+import java.lang.annotation.Annotation;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.StringJoiner;
+
+/**
+ * Attribute-level difference between two annotations of the same type, e.g. to decide what to rebuild when
+ * configuration is reloaded:
+ *
+ * <pre>
+ * <code>
+ * AnnotationDiff diff = AnnotationDiff.between(oldRoute, newRoute);
+ * if (diff.isChanged("path")) {
+ *   ...
+ * }
+ * </code>
+ * </pre>
+ *
+ * For two synthetic annotations, only attributes explicitly provided to either of them are compared, as the others
+ * share default values, and stored values are compared directly. Other annotations are compared through compiled
+ * accessors. Comparison short-circuits on identity, of annotations and of attribute values, so that diffing annotations
+ * sharing (e.g. canonical nested) values is cheap.
+ *
+ * @author findepi
+ */
+public final class AnnotationDiff {
+
+	private static final int[] NO_SLOTS = new int[0];
+
+	/**
+	 * @return differences between {@code left} and {@code right}
+	 */
+	public static <A extends Annotation> AnnotationDiff between(A left, A right) {
+		requireNonNull(left, "left");
+		requireNonNull(right, "right");
+		checkArgument(left.annotationType() == right.annotationType(), "Cannot compare %s with %s",
+				left.annotationType(), right.annotationType());
+
+		AnnotationSchema<? extends Annotation> schema = AnnotationSchema.of(left.annotationType());
+		if (left == right) {
+			return new AnnotationDiff(schema, left, right, NO_SLOTS);
+		}
+
+		SyntheticAnnotationInvocationHandler<?> leftHandler = SyntheticAnnotationInvocationHandler.handlerOf(left);
+		SyntheticAnnotationInvocationHandler<?> rightHandler = SyntheticAnnotationInvocationHandler.handlerOf(right);
+		int[] changed = leftHandler != null && rightHandler != null
+				? changedSlots(leftHandler, rightHandler)
+				: changedSlots(schema, left, leftHandler, right, rightHandler);
+		return new AnnotationDiff(schema, left, right, changed);
+	}
+
+	/**
+	 * Compares attributes explicitly provided to either of synthetic annotations.
+	 */
+	private static int[] changedSlots(SyntheticAnnotationInvocationHandler<?> left,
+			SyntheticAnnotationInvocationHandler<?> right) {
+
+		int[] leftSlots = left.explicitSlots();
+		int[] rightSlots = right.explicitSlots();
+		int[] changed = null;
+		int size = 0;
+		// merge ascending slot lists
+		for (int i = 0, j = 0; i < leftSlots.length || j < rightSlots.length;) {
+			int slot;
+			if (j >= rightSlots.length || (i < leftSlots.length && leftSlots[i] < rightSlots[j])) {
+				slot = leftSlots[i++];
+			} else if (i >= leftSlots.length || rightSlots[j] < leftSlots[i]) {
+				slot = rightSlots[j++];
+			} else {
+				slot = leftSlots[i++];
+				j++;
+			}
+
+			if (!isEqual(left.valueAt(slot), right.valueAt(slot))) {
+				if (changed == null) {
+					changed = new int[leftSlots.length + rightSlots.length];
+				}
+				changed[size++] = slot;
+			}
+		}
+		return changed == null ? NO_SLOTS : Arrays.copyOf(changed, size);
+	}
+
+	private static boolean isEqual(AnnotationValue left, AnnotationValue right) {
+		if (left == right) {
+			// including shared default, or both missing (incomplete annotations)
+			return true;
+		}
+		if (left == null || right == null) {
+			return false;
+		}
+		return left.isEqualTo(right);
+	}
+
+	/**
+	 * Compares all attributes, when at least one of annotations is not synthetic.
+	 */
+	private static int[] changedSlots(AnnotationSchema<?> schema, Annotation left,
+			SyntheticAnnotationInvocationHandler<?> leftHandler, Annotation right,
+			SyntheticAnnotationInvocationHandler<?> rightHandler) {
+
+		int[] changed = null;
+		int size = 0;
+		for (int slot = 0; slot < schema.size(); slot++) {
+			boolean equal;
+			if (leftHandler != null) {
+				AnnotationValue leftValue = leftHandler.valueAt(slot);
+				equal = leftValue != null && leftValue.isValueEqual(schema.valueIn(slot, right));
+			} else if (rightHandler != null) {
+				AnnotationValue rightValue = rightHandler.valueAt(slot);
+				equal = rightValue != null && rightValue.isValueEqual(schema.valueIn(slot, left));
+			} else {
+				Object leftValue = schema.valueIn(slot, left);
+				Object rightValue = schema.valueIn(slot, right);
+				// wrapped, so that primitive arrays are compared by contents as well
+				equal = leftValue == rightValue
+						|| Arrays.deepEquals(new Object[] { leftValue }, new Object[] { rightValue });
+			}
+
+			if (!equal) {
+				if (changed == null) {
+					changed = new int[schema.size()];
+				}
+				changed[size++] = slot;
+			}
+		}
+		return changed == null ? NO_SLOTS : Arrays.copyOf(changed, size);
+	}
+
+	private final AnnotationSchema<?> schema;
+	private final Annotation left;
+	private final Annotation right;
+	// ascending
+	private final int[] changedSlots;
+
+	private AnnotationDiff(AnnotationSchema<?> schema, Annotation left, Annotation right, int[] changedSlots) {
+		this.schema = schema;
+		this.left = left;
+		this.right = right;
+		this.changedSlots = changedSlots;
+	}
+
+	public Class<?> annotationType() {
+		return schema.annotationClass();
+	}
+
+	/**
+	 * @return whether the annotations are equal
+	 */
+	public boolean isEmpty() {
+		return changedSlots.length == 0;
+	}
+
+	/**
+	 * @return names of attributes that differ, in order of names
+	 */
+	public Set<String> changedAttributes() {
+		Set<String> names = new LinkedHashSet<>();
+		for (int slot : changedSlots) {
+			names.add(schema.name(slot));
+		}
+		return Collections.unmodifiableSet(names);
+	}
+
+	public boolean isChanged(String attribute) {
+		return Arrays.binarySearch(changedSlots, slotOf(attribute)) >= 0;
+	}
+
+	/**
+	 * @return value of {@code attribute} in the first (left) annotation
+	 */
+	public Object leftValue(String attribute) {
+		return schema.valueIn(slotOf(attribute), left);
+	}
+
+	/**
+	 * @return value of {@code attribute} in the second (right) annotation
+	 */
+	public Object rightValue(String attribute) {
+		return schema.valueIn(slotOf(attribute), right);
+	}
+
+	private int slotOf(String attribute) {
+		int slot = schema.slotOf(requireNonNull(attribute, "attribute"));
+		checkArgument(slot >= 0, "No method %s in %s", attribute, schema.annotationClass());
+		return slot;
+	}
+
+	@Override
+	public String toString() {
+		StringJoiner joiner = new StringJoiner(", ", format("AnnotationDiff{@%s: ", schema.annotationClass().getName()),
+				"}");
+		for (int slot : changedSlots) {
+			joiner.add(format("%s: %s -> %s", schema.name(slot), valueToString(schema.valueIn(slot, left)),
+					valueToString(schema.valueIn(slot, right))));
+		}
+		return joiner.toString();
+	}
+
+	private static String valueToString(Object value) {
+		String deepToString = Arrays.deepToString(new Object[] { value });
+		// strip the wrapping array
+		return deepToString.substring(1, deepToString.length() - 1);
+	}
+}
@@ -0,0 +1,174 @@
+package io.joj.reflect.annotation;
+
+import static io.joj.reflect.annotation.internal.Check.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Immutable collection of annotations of single type, e.g. a catalog of routes, that can be efficiently queried with
+ * {@link AnnotationMatcher}-s.
+ * <p>
+ * For each attribute used in a query, an index from attribute value to positions of annotations having that value is
+ * built, on first use. A query intersects position lists of all matched attributes, so its cost is proportional to the
+ * number of candidates having one of the values, rather than to the size of the collection.
+ *
+ * @author findepi
+ */
+public final class AnnotationIndex<A extends Annotation> {
+
+	private static final int[] NO_POSITIONS = new int[0];
+
+	public static <A extends Annotation> AnnotationIndex<A> of(Class<A> annotationClass,
+			Collection<? extends A> annotations) {
+
+		AnnotationSchema<A> schema = AnnotationSchema.of(annotationClass);
+		List<A> elements = new ArrayList<>(requireNonNull(annotations, "annotations"));
+		for (A annotation : elements) {
+			checkArgument(annotationClass.isInstance(requireNonNull(annotation, "annotation")),
+					"%s is not an instance of %s", annotation, annotationClass);
+		}
+		return new AnnotationIndex<>(schema, elements);
+	}
+
+	private final AnnotationSchema<A> schema;
+	private final List<A> annotations;
+	// lazily built, per slot
+	private final AtomicReferenceArray<Map<ValueKey, int[]>> indexes;
+
+	private AnnotationIndex(AnnotationSchema<A> schema, List<A> annotations) {
+		this.schema = schema;
+		this.annotations = Collections.unmodifiableList(annotations);
+		this.indexes = new AtomicReferenceArray<>(schema.size());
+	}
+
+	public int size() {
+		return annotations.size();
+	}
+
+	public List<A> annotations() {
+		return annotations;
+	}
+
+	/**
+	 * @return annotations matched by {@code matcher}, in order of this collection
+	 */
+	public List<A> find(AnnotationMatcher<A> matcher) {
+		requireNonNull(matcher, "matcher");
+		checkArgument(matcher.annotationType() == schema.annotationClass(), "Matcher for %s cannot query %s",
+				matcher.annotationType(), schema.annotationClass());
+
+		int[] slots = matcher.slots();
+		if (slots.length == 0) {
+			return annotations;
+		}
+
+		int[][] positionLists = new int[slots.length][];
+		for (int i = 0; i < slots.length; i++) {
+			positionLists[i] = index(slots[i]).getOrDefault(new ValueKey(matcher.expectedValue(i)), NO_POSITIONS);
+		}
+		// start from the most selective attribute
+		Arrays.sort(positionLists, (a, b) -> Integer.compare(a.length, b.length));
+
+		int[] positions = positionLists[0];
+		for (int i = 1; i < positionLists.length && positions.length > 0; i++) {
+			positions = intersect(positions, positionLists[i]);
+		}
+
+		List<A> found = new ArrayList<>(positions.length);
+		for (int position : positions) {
+			found.add(annotations.get(position));
+		}
+		return found;
+	}
+
+	private Map<ValueKey, int[]> index(int slot) {
+		Map<ValueKey, int[]> index = indexes.get(slot);
+		if (index == null) {
+			// racing threads compute equal indexes
+			index = buildIndex(slot);
+			indexes.compareAndSet(slot, null, index);
+		}
+		return index;
+	}
+
+	private Map<ValueKey, int[]> buildIndex(int slot) {
+		Map<ValueKey, List<Integer>> positions = new HashMap<>();
+		for (int position = 0; position < annotations.size(); position++) {
+			Object value = valueIn(slot, annotations.get(position));
+			if (value != null) {
+				positions.computeIfAbsent(new ValueKey(value), key -> new ArrayList<>()).add(position);
+			}
+		}
+
+		Map<ValueKey, int[]> index = new HashMap<>();
+		positions.forEach((key, list) -> index.put(key, list.stream().mapToInt(Integer::intValue).toArray()));
+		return index;
+	}
+
+	/**
+	 * @return attribute value, not copied if possible, or {@code null} for incomplete synthetic annotation
+	 */
+	private Object valueIn(int slot, A annotation) {
+		SyntheticAnnotationInvocationHandler<?> handler = SyntheticAnnotationInvocationHandler.handlerOf(annotation);
+		if (handler != null) {
+			AnnotationValue value = handler.valueAt(slot);
+			return value != null ? value.storedValue() : null;
+		}
+		return schema.valueIn(slot, annotation);
+	}
+
+	/**
+	 * Intersects ascending lists of positions.
+	 */
+	private static int[] intersect(int[] a, int[] b) {
+		int[] result = new int[Math.min(a.length, b.length)];
+		int size = 0;
+		for (int i = 0, j = 0; i < a.length && j < b.length;) {
+			if (a[i] < b[j]) {
+				i++;
+			} else if (a[i] > b[j]) {
+				j++;
+			} else {
+				result[size++] = a[i];
+				i++;
+				j++;
+			}
+		}
+		return Arrays.copyOf(result, size);
+	}
+
+	/**
+	 * Attribute value as a hash key, comparing arrays by contents.
+	 */
+	private static final class ValueKey {
+		private final Object[] value;
+		private final int hash;
+
+		ValueKey(Object value) {
+			// wrapped, so that deepEquals and deepHashCode handle primitive arrays
+			this.value = new Object[] { value };
+			this.hash = Arrays.deepHashCode(this.value);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof ValueKey
+					&& hash == ((ValueKey) obj).hash
+					&& Arrays.deepEquals(value, ((ValueKey) obj).value);
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package io.joj.reflect.annotation;
+
+import static java.util.Objects.requireNonNull;
+
+import java.lang.annotation.Annotation;
+
+import io.joj.reflect.cache.Caches;
+import io.joj.reflect.cache.WeakInterner;
+
+/**
+ * Canonicalizes equal synthetic annotations (hash-consing), so that equal annotations, e.g. nested in other
+ * annotations, are represented by single instance. Canonical instances have their hash codes computed, and compare
+ * equal with each other by identity.
+ * <p>
+ * Canonical instances are weakly referenced (see {@link WeakInterner}), so that neither instances nor annotation types
+ * are prevented from being garbage collected.
+ *
+ * @author findepi
+ */
+final class AnnotationInterner {
+
+	private static final WeakInterner<Annotation> canonicalInstances = Caches.newWeakInterner("interned-annotations");
+
+	private AnnotationInterner() {
+	}
+
+	/**
+	 * @return canonical instance equal to {@code annotation}
+	 */
+	static <A extends Annotation> A intern(A annotation) {
+		Annotation canonical = canonicalInstances.intern(requireNonNull(annotation, "annotation"));
+		@SuppressWarnings("unchecked") // equal to annotation, so of the same type
+		A result = (A) canonical;
+		return result;
+	}
+}
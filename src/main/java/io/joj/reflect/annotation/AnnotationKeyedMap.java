@@ -0,0 +1,142 @@
+package io.joj.reflect.annotation;
+
+import static java.util.Objects.requireNonNull;
+
+import java.lang.annotation.Annotation;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Concurrent map keyed with {@link Annotation}-s, e.g. qualifiers in a dependency injection registry.
+ * <p>
+ * Keys are normalized on insert: annotations other than synthetic ones (e.g. compiler-produced, obtained via
+ * reflection) are replaced by equal synthetic annotations, which cache their hash code and compare with each other by
+ * stored values. Hash code of every key is computed once, and kept along with the key. Reads are lock-free, also under
+ * concurrent writes.
+ * <p>
+ * Lookups are cheapest with synthetic annotations, especially the very instances that were inserted, which compare
+ * equal with stored keys by identity.
+ *
+ * @param <V>
+ *            type of values
+ * @author findepi
+ */
+public final class AnnotationKeyedMap<V> {
+
+	private final ConcurrentMap<Key, V> entries = new ConcurrentHashMap<>();
+
+	public V get(Annotation key) {
+		return entries.get(lookupKey(key));
+	}
+
+	public boolean containsKey(Annotation key) {
+		return entries.containsKey(lookupKey(key));
+	}
+
+	public V put(Annotation key, V value) {
+		return entries.put(storedKey(key), requireNonNull(value, "value"));
+	}
+
+	public V putIfAbsent(Annotation key, V value) {
+		return entries.putIfAbsent(storedKey(key), requireNonNull(value, "value"));
+	}
+
+	public V computeIfAbsent(Annotation key, Function<? super Annotation, ? extends V> mappingFunction) {
+		requireNonNull(mappingFunction, "mappingFunction");
+		V value = entries.get(lookupKey(key));
+		if (value != null) {
+			return value;
+		}
+		return entries.computeIfAbsent(storedKey(key), storedKey -> mappingFunction.apply(storedKey.annotation));
+	}
+
+	public V remove(Annotation key) {
+		return entries.remove(lookupKey(key));
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	public boolean isEmpty() {
+		return entries.isEmpty();
+	}
+
+	public void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * Performs {@code action} on each entry. Keys passed to {@code action} are normalized (i.e. synthetic).
+	 */
+	public void forEach(BiConsumer<? super Annotation, ? super V> action) {
+		requireNonNull(action, "action");
+		entries.forEach((key, value) -> action.accept(key.annotation, value));
+	}
+
+	private static Key lookupKey(Annotation annotation) {
+		return new Key(requireNonNull(annotation, "key"), false);
+	}
+
+	private static Key storedKey(Annotation annotation) {
+		return new Key(normalize(requireNonNull(annotation, "key")), true);
+	}
+
+	/**
+	 * @return synthetic annotation equal to {@code annotation}
+	 */
+	static <A extends Annotation> A normalize(A annotation) {
+		if (SyntheticAnnotationInvocationHandler.handlerOf(annotation) != null) {
+			return annotation;
+		}
+
+		@SuppressWarnings("unchecked") // A's annotation type is A
+		Class<A> annotationType = (Class<A>) annotation.annotationType();
+		AnnotationSchema<A> schema = AnnotationSchema.of(annotationType);
+		Map<String, Object> values = new HashMap<>();
+		for (int slot = 0; slot < schema.size(); slot++) {
+			values.put(schema.name(slot), schema.valueIn(slot, annotation));
+		}
+		return AnnotationBuilder.buildFromMap(annotationType, values);
+	}
+
+	private static final class Key {
+		private final Annotation annotation;
+		private final int hash;
+		// whether the annotation is normalized
+		private final boolean stored;
+
+		Key(Annotation annotation, boolean stored) {
+			this.annotation = annotation;
+			this.hash = annotation.hashCode();
+			this.stored = stored;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			if (annotation == other.annotation) {
+				return true;
+			}
+			if (hash != other.hash) {
+				return false;
+			}
+			// Prefer equals() of the normalized annotation, as it is cheaper
+			return stored
+					? annotation.equals(other.annotation)
+					: other.annotation.equals(annotation);
+		}
+	}
+}
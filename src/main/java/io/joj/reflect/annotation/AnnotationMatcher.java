@@ -0,0 +1,160 @@
+package io.joj.reflect.annotation;
+
+import static java.util.Objects.requireNonNull;
+
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Matches annotations against a pattern, which is an annotation specifying only some of the attributes, e.g. "any
+ * {@code @Route} with {@code method} GET":
+ *
+ * <pre>
+ * <code>
+ * AnnotationMatcher&lt;Route&gt; matcher = AnnotationMatcher.of(AnnotationBuilder.builderFor(Route.class)
+ *   .completeness(THROW_WHERE_UNDEFINED)
+ *   .with(Route::method).returning(GET)
+ *   .build());
+ * </code>
+ * </pre>
+ *
+ * Attributes explicitly provided to incomplete synthetic patterns (see {@link SyntheticAnnotationCompleteness}) are
+ * matched, others are not. Complete patterns, including compiled annotations, match on all attributes, i.e. like
+ * {@code equals}.
+ * <p>
+ * Matchers are compiled once, and test candidates through fast accessors, without copying values of synthetic
+ * candidates. To match against a large collection repeatedly, use {@link AnnotationIndex}.
+ *
+ * @author findepi
+ */
+public final class AnnotationMatcher<A extends Annotation> implements Predicate<Annotation> {
+
+	public static <A extends Annotation> AnnotationMatcher<A> of(A pattern) {
+		requireNonNull(pattern, "pattern");
+		@SuppressWarnings("unchecked") // A's annotation type is A
+		Class<A> annotationType = (Class<A>) pattern.annotationType();
+		AnnotationSchema<A> schema = AnnotationSchema.of(annotationType);
+
+		SyntheticAnnotationInvocationHandler<?> handler = SyntheticAnnotationInvocationHandler.handlerOf(pattern);
+		int[] slots;
+		AnnotationValue[] expected;
+		if (handler != null && handler.completeness() != SyntheticAnnotationCompleteness.REQUIRE_COMPLETE) {
+			slots = handler.explicitSlots().clone();
+			expected = new AnnotationValue[slots.length];
+			for (int i = 0; i < slots.length; i++) {
+				expected[i] = handler.valueAt(slots[i]);
+			}
+		} else {
+			slots = new int[schema.size()];
+			expected = new AnnotationValue[schema.size()];
+			for (int slot = 0; slot < schema.size(); slot++) {
+				slots[slot] = slot;
+				expected[slot] = handler != null
+						? handler.valueAt(slot)
+						: AnnotationValue.valueOf(schema.getter(slot), schema.valueIn(slot, pattern));
+			}
+		}
+		return new AnnotationMatcher<>(schema, slots, expected);
+	}
+
+	private final AnnotationSchema<A> schema;
+	// matched slots, ascending
+	private final int[] slots;
+	private final AnnotationValue[] expected;
+
+	private AnnotationMatcher(AnnotationSchema<A> schema, int[] slots, AnnotationValue[] expected) {
+		this.schema = schema;
+		this.slots = slots;
+		this.expected = expected;
+	}
+
+	public Class<A> annotationType() {
+		return schema.annotationClass();
+	}
+
+	@Override
+	public boolean test(Annotation candidate) {
+		if (candidate == null || candidate.annotationType() != schema.annotationClass()) {
+			return false;
+		}
+
+		SyntheticAnnotationInvocationHandler<?> handler = SyntheticAnnotationInvocationHandler.handlerOf(candidate);
+		for (int i = 0; i < slots.length; i++) {
+			boolean equal;
+			if (handler != null) {
+				AnnotationValue value = handler.valueAt(slots[i]);
+				// null for incomplete candidate
+				equal = value != null && expected[i].isEqualTo(value);
+			} else {
+				equal = expected[i].isValueEqual(schema.valueIn(slots[i], candidate));
+			}
+			if (!equal) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return matching annotations, in order of {@code candidates}
+	 */
+	public List<A> filter(Iterable<? extends A> candidates) {
+		List<A> matching = new ArrayList<>();
+		for (A candidate : requireNonNull(candidates, "candidates")) {
+			if (test(candidate)) {
+				matching.add(candidate);
+			}
+		}
+		return matching;
+	}
+
+	int[] slots() {
+		return slots;
+	}
+
+	Object expectedValue(int index) {
+		return expected[index].storedValue();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("AnnotationMatcher{@").append(schema.annotationClass().getName())
+				.append("(");
+		for (int i = 0; i < slots.length; i++) {
+			if (i > 0) {
+				builder.append(", ");
+			}
+			builder.append(schema.name(slots[i])).append("=").append(expected[i].valueToString());
+		}
+		return builder.append(")}").toString();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof AnnotationMatcher)) {
+			return false;
+		}
+		AnnotationMatcher<?> other = (AnnotationMatcher<?>) obj;
+		if (schema.annotationClass() != other.schema.annotationClass() || !Arrays.equals(slots, other.slots)) {
+			return false;
+		}
+		for (int i = 0; i < slots.length; i++) {
+			if (!expected[i].isValueEqual(other.expectedValue(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = schema.annotationClass().hashCode();
+		for (int i = 0; i < slots.length; i++) {
+			hash += expected[i].hashCodeNameAndValue();
+		}
+		return hash;
+	}
+}
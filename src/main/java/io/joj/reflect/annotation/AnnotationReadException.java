@@ -0,0 +1,32 @@
+package io.joj.reflect.annotation;
+
+import static java.lang.String.format;
+
+/**
+ * Signals that annotation cannot be read from a token stream (see {@link AnnotationReader}), either because the input
+ * is malformed, or because it does not describe a valid annotation.
+ *
+ * @author findepi
+ */
+public class AnnotationReadException extends IllegalArgumentException {
+	private static final long serialVersionUID = 1L;
+
+	private final String position;
+
+	public AnnotationReadException(String message, String position) {
+		super(format("%s at %s", message, position));
+		this.position = position;
+	}
+
+	public AnnotationReadException(String message, String position, Throwable cause) {
+		super(format("%s at %s", message, position), cause);
+		this.position = position;
+	}
+
+	/**
+	 * @return position in the source, as reported by {@link AnnotationTokenReader#position()}
+	 */
+	public String getPosition() {
+		return position;
+	}
+}
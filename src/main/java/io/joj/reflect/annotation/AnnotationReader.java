@@ -0,0 +1,304 @@
+package io.joj.reflect.annotation;
+
+import static io.joj.reflect.annotation.SyntheticAnnotationCompleteness.REQUIRE_COMPLETE;
+import static java.lang.String.format;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import io.joj.reflect.annotation.AnnotationTokenReader.Token;
+import io.joj.reflect.annotation.internal.Classes;
+import io.joj.reflect.cache.Caches;
+import io.joj.reflect.cache.ClassKeyedCache;
+
+/**
+ * Builds synthetic annotations directly from a stream of tokens (see {@link AnnotationTokenReader}), without
+ * intermediate {@code Map}-s. An annotation is read from an object, which maps annotation method names to values:
+ * <ul>
+ * <li>strings for {@link String}, {@code char} (single character), enum (constant name) and {@link Class} (binary
+ * name, resolved with the thread context class loader, then with annotation type's class loader) values,</li>
+ * <li>numbers for numeric values,</li>
+ * <li>booleans for {@code boolean} values,</li>
+ * <li>objects for nested annotations,</li>
+ * <li>arrays for array values; single element arrays can be given as the element itself.</li>
+ * </ul>
+ * For example, {@code {"value": "x", "tags": ["a", "b"]}}. Errors are reported with {@link AnnotationReadException},
+ * which carries position in the source.
+ *
+ * @author findepi
+ */
+public final class AnnotationReader<A extends Annotation> {
+
+	private static final ClassKeyedCache<AnnotationReader<?>> readers = Caches.newClassKeyedCache(
+			"annotation-readers",
+			type -> new AnnotationReader<>(AnnotationSchema.of(type.asSubclass(Annotation.class))));
+
+	public static <A extends Annotation> AnnotationReader<A> forType(Class<A> annotationClass) {
+		// validate
+		AnnotationSchema.of(annotationClass);
+		@SuppressWarnings("unchecked") // computed for annotationClass
+		AnnotationReader<A> reader = (AnnotationReader<A>) readers.get(annotationClass);
+		return reader;
+	}
+
+	private final AnnotationSchema<A> schema;
+	private final ValueReader[] slotReaders;
+
+	private AnnotationReader(AnnotationSchema<A> schema) {
+		this.schema = schema;
+		this.slotReaders = new ValueReader[schema.size()];
+		for (int slot = 0; slot < schema.size(); slot++) {
+			slotReaders[slot] = valueReader(schema.getter(slot).getReturnType());
+		}
+	}
+
+	/**
+	 * Reads single annotation, from an object starting at the next token.
+	 */
+	public A read(AnnotationTokenReader tokens) throws IOException {
+		return readObject(tokens, tokens.next());
+	}
+
+	/**
+	 * Reads annotations from an array of objects starting at the next token, passing each to {@code consumer} as soon
+	 * as it is read.
+	 */
+	public void readEach(AnnotationTokenReader tokens, Consumer<? super A> consumer) throws IOException {
+		Token token = tokens.next();
+		if (token != Token.BEGIN_ARRAY) {
+			throw new AnnotationReadException(format("Expected array of %s, got %s", schema.annotationClass(), token),
+					tokens.position());
+		}
+		while ((token = tokens.next()) != Token.END_ARRAY) {
+			consumer.accept(readObject(tokens, token));
+		}
+	}
+
+	private A readObject(AnnotationTokenReader tokens, Token token) throws IOException {
+		if (token != Token.BEGIN_OBJECT) {
+			throw new AnnotationReadException(format("Expected %s, got %s", schema.annotationClass(), token),
+					tokens.position());
+		}
+		String objectPosition = tokens.position();
+
+		Object[] slotValues = new Object[schema.size()];
+		while ((token = tokens.next()) != Token.END_OBJECT) {
+			if (token != Token.NAME) {
+				throw new AnnotationReadException(format("Expected name, got %s", token), tokens.position());
+			}
+			String name = tokens.text();
+			int slot = schema.slotOf(name);
+			if (slot < 0) {
+				throw new AnnotationReadException(format("No method %s in %s", name, schema.annotationClass()),
+						tokens.position());
+			}
+			if (slotValues[slot] != null) {
+				throw new AnnotationReadException(format("Duplicate value for %s", name), tokens.position());
+			}
+			slotValues[slot] = slotReaders[slot].read(tokens, tokens.next());
+		}
+
+		try {
+			return AnnotationBuilder.buildFromSlots(schema, slotValues, REQUIRE_COMPLETE);
+		} catch (IllegalArgumentException | ClassCastException | NullPointerException e) {
+			throw new AnnotationReadException(e.getMessage(), objectPosition, e);
+		}
+	}
+
+	@FunctionalInterface
+	private interface ValueReader {
+		/**
+		 * @param token
+		 *            current token, first token of the value
+		 */
+		Object read(AnnotationTokenReader tokens, Token token) throws IOException;
+	}
+
+	private ValueReader valueReader(Class<?> type) {
+		if (type.isArray()) {
+			return arrayReader(type.getComponentType());
+		}
+		if (type == String.class) {
+			return (tokens, token) -> expect(tokens, token, Token.STRING, type);
+		}
+		if (type == boolean.class) {
+			return (tokens, token) -> Boolean.valueOf(expect(tokens, token, Token.BOOLEAN, type));
+		}
+		if (type == char.class) {
+			return (tokens, token) -> {
+				String text = expect(tokens, token, Token.STRING, type);
+				if (text.length() != 1) {
+					throw new AnnotationReadException(format("Expected single character, got '%s'", text),
+							tokens.position());
+				}
+				return text.charAt(0);
+			};
+		}
+		if (type == int.class) {
+			return numberReader(type, Integer::valueOf);
+		}
+		if (type == long.class) {
+			return numberReader(type, Long::valueOf);
+		}
+		if (type == short.class) {
+			return numberReader(type, Short::valueOf);
+		}
+		if (type == byte.class) {
+			return numberReader(type, Byte::valueOf);
+		}
+		if (type == float.class) {
+			return numberReader(type, Float::valueOf);
+		}
+		if (type == double.class) {
+			return numberReader(type, Double::valueOf);
+		}
+		if (type.isEnum()) {
+			Map<String, Object> constants = new HashMap<>();
+			for (Object constant : type.getEnumConstants()) {
+				constants.put(((Enum<?>) constant).name(), constant);
+			}
+			return (tokens, token) -> {
+				String name = expect(tokens, token, Token.STRING, type);
+				Object constant = constants.get(name);
+				if (constant == null) {
+					throw new AnnotationReadException(format("No constant %s in %s", name, type), tokens.position());
+				}
+				return constant;
+			};
+		}
+		if (type == Class.class) {
+			ClassLoader loader = schema.annotationClass().getClassLoader();
+			return (tokens, token) -> {
+				String name = expect(tokens, token, Token.STRING, type);
+				try {
+					return Classes.forName(name, loader);
+				} catch (ClassNotFoundException e) {
+					throw new AnnotationReadException(format("Class %s not found", name), tokens.position(), e);
+				}
+			};
+		}
+		if (type.isAnnotation()) {
+			return (tokens, token) -> forType(type.asSubclass(Annotation.class)).readObject(tokens, token);
+		}
+		throw new IllegalArgumentException(format("Unsupported annotation method type %s", type));
+	}
+
+	private ValueReader arrayReader(Class<?> componentType) {
+		ValueReader elementReader = valueReader(componentType);
+		ArrayWriter writer = arrayWriter(componentType);
+		Object emptyArray = Array.newInstance(componentType, 0);
+		return (tokens, token) -> {
+			if (token != Token.BEGIN_ARRAY) {
+				Object array = resize(emptyArray, 1);
+				writer.set(array, 0, elementReader.read(tokens, token));
+				return array;
+			}
+
+			Object array = emptyArray;
+			int capacity = 0;
+			int length = 0;
+			while ((token = tokens.next()) != Token.END_ARRAY) {
+				Object element = elementReader.read(tokens, token);
+				if (length == capacity) {
+					capacity = Math.max(4, capacity * 2);
+					array = resize(array, capacity);
+				}
+				writer.set(array, length++, element);
+			}
+			return length == capacity ? array : resize(array, length);
+		};
+	}
+
+	@FunctionalInterface
+	private interface ArrayWriter {
+		void set(Object array, int index, Object value);
+	}
+
+	/**
+	 * Element readers produce values of the component type (boxed for primitives), so no checks are needed.
+	 */
+	private static ArrayWriter arrayWriter(Class<?> componentType) {
+		if (!componentType.isPrimitive()) {
+			return (array, index, value) -> ((Object[]) array)[index] = value;
+		}
+		if (componentType == int.class) {
+			return (array, index, value) -> ((int[]) array)[index] = (Integer) value;
+		}
+		if (componentType == long.class) {
+			return (array, index, value) -> ((long[]) array)[index] = (Long) value;
+		}
+		if (componentType == double.class) {
+			return (array, index, value) -> ((double[]) array)[index] = (Double) value;
+		}
+		if (componentType == float.class) {
+			return (array, index, value) -> ((float[]) array)[index] = (Float) value;
+		}
+		if (componentType == short.class) {
+			return (array, index, value) -> ((short[]) array)[index] = (Short) value;
+		}
+		if (componentType == byte.class) {
+			return (array, index, value) -> ((byte[]) array)[index] = (Byte) value;
+		}
+		if (componentType == char.class) {
+			return (array, index, value) -> ((char[]) array)[index] = (Character) value;
+		}
+		return (array, index, value) -> ((boolean[]) array)[index] = (Boolean) value;
+	}
+
+	private static Object resize(Object array, int length) {
+		if (array instanceof Object[]) {
+			return Arrays.copyOf((Object[]) array, length);
+		}
+		if (array instanceof int[]) {
+			return Arrays.copyOf((int[]) array, length);
+		}
+		if (array instanceof long[]) {
+			return Arrays.copyOf((long[]) array, length);
+		}
+		if (array instanceof double[]) {
+			return Arrays.copyOf((double[]) array, length);
+		}
+		if (array instanceof float[]) {
+			return Arrays.copyOf((float[]) array, length);
+		}
+		if (array instanceof short[]) {
+			return Arrays.copyOf((short[]) array, length);
+		}
+		if (array instanceof byte[]) {
+			return Arrays.copyOf((byte[]) array, length);
+		}
+		if (array instanceof char[]) {
+			return Arrays.copyOf((char[]) array, length);
+		}
+		return Arrays.copyOf((boolean[]) array, length);
+	}
+
+	@FunctionalInterface
+	private interface NumberParser {
+		Object parse(String text);
+	}
+
+	private static ValueReader numberReader(Class<?> type, NumberParser parser) {
+		return (tokens, token) -> {
+			String text = expect(tokens, token, Token.NUMBER, type);
+			try {
+				return parser.parse(text);
+			} catch (NumberFormatException e) {
+				throw new AnnotationReadException(format("Invalid %s value %s", type, text), tokens.position(), e);
+			}
+		};
+	}
+
+	private static String expect(AnnotationTokenReader tokens, Token token, Token expected, Class<?> type) {
+		if (token != expected) {
+			throw new AnnotationReadException(format("Expected %s for %s, got %s", expected, type, token),
+					tokens.position());
+		}
+		return tokens.text();
+	}
+}
@@ -0,0 +1,224 @@
+package io.joj.reflect.annotation;
+
+import static io.joj.reflect.annotation.internal.Check.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.joj.reflect.annotation.internal.Accessors;
+import io.joj.reflect.cache.Caches;
+import io.joj.reflect.cache.ClassKeyedCache;
+
+/**
+ * Describes attributes (methods) of an {@link Annotation} type, or of a value interface (see
+ * {@link ValueObjectBuilder}). Attributes are numbered with "slots", in the order of their names, which is also the
+ * order in which they are printed by {@code toString()}.
+ * <p>
+ * Schema is computed once per type and cached along with the type (see {@link ClassKeyedCache}), so that it does not
+ * prevent class unloading.
+ *
+ * @author findepi
+ */
+final class AnnotationSchema<A> {
+
+	private static final ClassKeyedCache<AnnotationSchema<?>> schemas = Caches.newClassKeyedCache(
+			"annotation-schemas", type -> new AnnotationSchema<>(type));
+
+	public static <A extends Annotation> AnnotationSchema<A> of(Class<A> annotationClass) {
+		checkArgument(requireNonNull(annotationClass, "annotationClass").isAnnotation(),
+				"%s is not an annotation type", annotationClass);
+
+		@SuppressWarnings("unchecked") // computed for annotationClass
+		AnnotationSchema<A> schema = (AnnotationSchema<A>) schemas.get(annotationClass);
+		return schema;
+	}
+
+	/**
+	 * @param valueInterface
+	 *            interface with getters only, other than annotation type
+	 */
+	public static <T> AnnotationSchema<T> ofValueType(Class<T> valueInterface) {
+		checkArgument(requireNonNull(valueInterface, "valueInterface").isInterface() && !valueInterface.isAnnotation(),
+				"%s is not a value interface", valueInterface);
+
+		@SuppressWarnings("unchecked") // computed for valueInterface
+		AnnotationSchema<T> schema = (AnnotationSchema<T>) schemas.get(valueInterface);
+		return schema;
+	}
+
+	/**
+	 * Schema of an annotation type or value interface.
+	 */
+	public static <T> AnnotationSchema<T> ofType(Class<T> type) {
+		if (requireNonNull(type, "type").isAnnotation()) {
+			@SuppressWarnings("unchecked") // annotation type
+			AnnotationSchema<T> schema = (AnnotationSchema<T>) of(type.asSubclass(Annotation.class));
+			return schema;
+		}
+		return ofValueType(type);
+	}
+
+	private final Class<A> annotationClass;
+	private final Method[] getters;
+	private final MethodHandle[] accessors;
+	// may contain nulls, where there is no default
+	private final Object[] defaults;
+	// may contain nulls, where there is no default
+	private final AnnotationValue[] defaultValues;
+	// sum of hash code contributions of all default values
+	private final int defaultsHashCode;
+	private final Map<String, Integer> slots;
+
+	private AnnotationSchema(Class<A> annotationClass) {
+		this.annotationClass = annotationClass;
+
+		List<Method> getters = annotationClass.isAnnotation()
+				? annotationGetters(annotationClass)
+				: valueGetters(annotationClass);
+		getters.sort(Comparator.comparing(Method::getName));
+		this.getters = getters.toArray(new Method[getters.size()]);
+
+		this.accessors = new MethodHandle[this.getters.length];
+		this.defaults = new Object[this.getters.length];
+		this.defaultValues = new AnnotationValue[this.getters.length];
+		int defaultsHashCode = 0;
+		Map<String, Integer> slots = new HashMap<>();
+		for (int slot = 0; slot < this.getters.length; slot++) {
+			accessors[slot] = Accessors.getter(this.getters[slot]);
+			defaults[slot] = this.getters[slot].getDefaultValue();
+			if (defaults[slot] != null) {
+				defaultValues[slot] = AnnotationValue.valueOf(this.getters[slot], defaults[slot]);
+				defaultsHashCode += defaultValues[slot].hashCodeNameAndValue();
+			}
+			slots.put(this.getters[slot].getName(), slot);
+		}
+		this.defaultsHashCode = defaultsHashCode;
+		this.slots = Collections.unmodifiableMap(slots);
+	}
+
+	private static List<Method> annotationGetters(Class<?> annotationClass) {
+		List<Method> getters = new ArrayList<>();
+		for (Method annotationGetter : annotationClass.getDeclaredMethods()) {
+			if (Modifier.isStatic(annotationGetter.getModifiers())) {
+				continue;
+			}
+			getters.add(annotationGetter);
+		}
+		return getters;
+	}
+
+	private static List<Method> valueGetters(Class<?> valueInterface) {
+		Map<String, Method> getters = new HashMap<>();
+		for (Method method : valueInterface.getMethods()) {
+			if (Modifier.isStatic(method.getModifiers()) || isObjectMethod(method)) {
+				continue;
+			}
+			checkArgument(!method.isDefault(), "Default methods are not supported: %s", method);
+			checkArgument(method.getParameterCount() == 0 && method.getReturnType() != void.class,
+					"%s is not a getter", method);
+
+			// the same getter may be inherited from multiple interfaces, with covariant return types
+			getters.merge(method.getName(), method, (first, second) -> {
+				if (first.getReturnType().isAssignableFrom(second.getReturnType())) {
+					return second;
+				}
+				checkArgument(second.getReturnType().isAssignableFrom(first.getReturnType()),
+						"Incompatible getters %s and %s", first, second);
+				return first;
+			});
+		}
+		return new ArrayList<>(getters.values());
+	}
+
+	private static boolean isObjectMethod(Method method) {
+		try {
+			Object.class.getMethod(method.getName(), method.getParameterTypes());
+			return true;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * @return the annotation type, or the value interface
+	 */
+	public Class<A> annotationClass() {
+		return annotationClass;
+	}
+
+	/**
+	 * Number of attributes.
+	 */
+	public int size() {
+		return getters.length;
+	}
+
+	/**
+	 * @return whether the type has single attribute, named {@code value}
+	 */
+	public boolean isSingleValue() {
+		return getters.length == 1 && getters[0].getName().equals("value");
+	}
+
+	public Method getter(int slot) {
+		return getters[slot];
+	}
+
+	public String name(int slot) {
+		return getters[slot].getName();
+	}
+
+	/**
+	 * Invokes attribute getter on {@code annotation}, which can be any implementation of the annotation type.
+	 */
+	public Object valueIn(int slot, Object annotation) {
+		try {
+			return (Object) accessors[slot].invokeExact(annotation);
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * @return slot of attribute {@code name}, or {@code -1} if there is no such attribute
+	 */
+	public int slotOf(String name) {
+		Integer slot = slots.get(name);
+		return slot != null ? slot : -1;
+	}
+
+	/**
+	 * @return default value of the attribute, or {@code null} if it has no default
+	 * @implSpec Returned value is shared, so array defaults must not be modified nor leaked.
+	 */
+	public Object defaultValue(int slot) {
+		return defaults[slot];
+	}
+
+	/**
+	 * @return default value of the attribute, shared by all annotations not overriding it, or {@code null} if it has no
+	 *         default
+	 */
+	public AnnotationValue defaultAnnotationValue(int slot) {
+		return defaultValues[slot];
+	}
+
+	/**
+	 * @return sum of {@link AnnotationValue#hashCodeNameAndValue()} of all default values, i.e. hash code of an
+	 *         annotation not overriding any default
+	 */
+	public int defaultsHashCode() {
+		return defaultsHashCode;
+	}
+}
@@ -0,0 +1,281 @@
+package io.joj.reflect.annotation;
+
+import static java.lang.String.format;
+import static java.util.Collections.singletonMap;
+import static java.util.Objects.requireNonNull;
+
+import java.lang.annotation.Annotation;
+import java.lang.annotation.Repeatable;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Immutable set of annotations, exposed as an {@link AnnotatedElement}, e.g. to hand synthetic annotations over to
+ * frameworks inspecting annotated elements. Annotations can be synthetic or real (obtained via reflection).
+ * <p>
+ * As in source code, at most one annotation of each type can be present. Multiple annotations of a
+ * {@link Repeatable repeatable} type are wrapped in a synthetic containing annotation, so that they are only indirectly
+ * present, as if they were compiled. All annotations are considered declared, i.e. there is no inheritance.
+ * <p>
+ * Annotations are looked up by type in constant time, with a small open-addressed hash table indexed by annotation type.
+ * Arrays returned from {@link #getAnnotations()} and {@link #getAnnotationsByType(Class)} are computed upfront, and only
+ * copied on return.
+ *
+ * @author findepi
+ */
+public final class AnnotationSet implements AnnotatedElement {
+
+	private static final Annotation[] NO_ANNOTATIONS = new Annotation[0];
+	private static final AnnotationSet EMPTY = new AnnotationSet(NO_ANNOTATIONS);
+
+	/*
+	 * Open-addressed (linear probing) hash table, kept at most half full. For each type, holds the directly present
+	 * annotation (if any) and all directly or indirectly present annotations (as array of that type).
+	 */
+	private final Class<?>[] types;
+	private final Annotation[] present;
+	private final Annotation[][] presentByType;
+	private final int mask;
+
+	// in order of appearance
+	private final Annotation[] annotations;
+
+	public static AnnotationSet of(Annotation... annotations) {
+		return of(Arrays.asList(requireNonNull(annotations, "annotations")));
+	}
+
+	public static AnnotationSet of(Iterable<? extends Annotation> annotations) {
+		requireNonNull(annotations, "annotations");
+
+		Map<Class<? extends Annotation>, List<Annotation>> byType = new LinkedHashMap<>();
+		for (Annotation annotation : annotations) {
+			requireNonNull(annotation, "annotation");
+			byType.computeIfAbsent(annotation.annotationType(), type -> new ArrayList<>()).add(annotation);
+		}
+		if (byType.isEmpty()) {
+			return EMPTY;
+		}
+
+		List<Annotation> declared = new ArrayList<>();
+		for (Map.Entry<Class<? extends Annotation>, List<Annotation>> entry : byType.entrySet()) {
+			Class<? extends Annotation> type = entry.getKey();
+			List<Annotation> ofType = entry.getValue();
+			if (ofType.size() == 1) {
+				declared.add(ofType.get(0));
+				continue;
+			}
+
+			Repeatable repeatable = type.getAnnotation(Repeatable.class);
+			if (repeatable == null) {
+				throw new IllegalArgumentException(format("Duplicate annotation of non-repeatable type %s: %s", type,
+						ofType));
+			}
+			if (byType.containsKey(repeatable.value())) {
+				throw new IllegalArgumentException(format("%s is repeated and its container %s is present", type,
+						repeatable.value()));
+			}
+			declared.add(AnnotationBuilder.buildFromMap(repeatable.value(),
+					singletonMap("value", toArray(type, ofType))));
+		}
+
+		return new AnnotationSet(declared.toArray(new Annotation[declared.size()]));
+	}
+
+	private AnnotationSet(Annotation[] annotations) {
+		this.annotations = annotations;
+
+		Annotation[][] contained = new Annotation[annotations.length][];
+		int entries = annotations.length;
+		for (int i = 0; i < annotations.length; i++) {
+			contained[i] = containedRepeatable(annotations[i]);
+			if (contained[i] != null) {
+				entries++;
+			}
+		}
+
+		// at least twice the number of entries, so that there is always a free bucket
+		int capacity = Integer.highestOneBit(Math.max(1, entries)) * 4;
+		this.types = new Class<?>[capacity];
+		this.present = new Annotation[capacity];
+		this.presentByType = new Annotation[capacity][];
+		this.mask = capacity - 1;
+
+		for (Annotation annotation : annotations) {
+			int index = insert(annotation.annotationType());
+			present[index] = annotation;
+			presentByType[index] = append(presentByType[index], annotation.annotationType(), annotation);
+		}
+		// Indirectly present ones are added after directly present ones, as compiled annotations do.
+		for (Annotation[] elements : contained) {
+			if (elements != null) {
+				Class<?> containedType = elements.getClass().getComponentType();
+				int index = insert(containedType);
+				for (Annotation element : elements) {
+					presentByType[index] = append(presentByType[index], containedType, element);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return annotations wrapped in {@code annotation}, if it is a non-empty container of a repeatable annotation
+	 *         type, or {@code null}
+	 */
+	private static Annotation[] containedRepeatable(Annotation annotation) {
+		AnnotationSchema<?> schema = AnnotationSchema.of(annotation.annotationType());
+		int slot = schema.slotOf("value");
+		if (slot < 0) {
+			return null;
+		}
+		Class<?> valueType = schema.getter(slot).getReturnType();
+		if (!valueType.isArray() || !valueType.getComponentType().isAnnotation()) {
+			return null;
+		}
+		Repeatable repeatable = valueType.getComponentType().getAnnotation(Repeatable.class);
+		if (repeatable == null || repeatable.value() != annotation.annotationType()) {
+			return null;
+		}
+		Annotation[] contained = (Annotation[]) schema.valueIn(slot, annotation);
+		return contained.length == 0 ? null : contained;
+	}
+
+	private static Annotation[] toArray(Class<? extends Annotation> type, List<Annotation> annotations) {
+		Annotation[] array = (Annotation[]) Array.newInstance(type, annotations.size());
+		return annotations.toArray(array);
+	}
+
+	private static Annotation[] append(Annotation[] array, Class<?> type, Annotation annotation) {
+		if (array == null) {
+			Annotation[] single = (Annotation[]) Array.newInstance(type, 1);
+			single[0] = annotation;
+			return single;
+		}
+		Annotation[] appended = Arrays.copyOf(array, array.length + 1);
+		appended[array.length] = annotation;
+		return appended;
+	}
+
+	private int insert(Class<?> type) {
+		int index = hash(type) & mask;
+		while (types[index] != null && types[index] != type) {
+			index = (index + 1) & mask;
+		}
+		types[index] = type;
+		return index;
+	}
+
+	/**
+	 * @return index of {@code type} in the table, or {@code -1}
+	 */
+	private int indexOf(Class<?> type) {
+		int index = hash(type) & mask;
+		Class<?> candidate;
+		while ((candidate = types[index]) != null) {
+			if (candidate == type) {
+				return index;
+			}
+			index = (index + 1) & mask;
+		}
+		return -1;
+	}
+
+	private static int hash(Class<?> type) {
+		int hash = type.hashCode();
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * Number of directly present annotations.
+	 */
+	public int size() {
+		return annotations.length;
+	}
+
+	@Override
+	public <T extends Annotation> T getAnnotation(Class<T> annotationClass) {
+		int index = indexOf(requireNonNull(annotationClass, "annotationClass"));
+		return index < 0 ? null : annotationClass.cast(present[index]);
+	}
+
+	@Override
+	public boolean isAnnotationPresent(Class<? extends Annotation> annotationClass) {
+		return getAnnotation(annotationClass) != null;
+	}
+
+	@Override
+	public Annotation[] getAnnotations() {
+		return annotations.length == 0 ? NO_ANNOTATIONS : annotations.clone();
+	}
+
+	@Override
+	public <T extends Annotation> T[] getAnnotationsByType(Class<T> annotationClass) {
+		int index = indexOf(requireNonNull(annotationClass, "annotationClass"));
+		if (index < 0) {
+			@SuppressWarnings("unchecked") // array of T
+			T[] empty = (T[]) Array.newInstance(annotationClass, 0);
+			return empty;
+		}
+		@SuppressWarnings("unchecked") // created as array of T
+		T[] result = (T[]) presentByType[index].clone();
+		return result;
+	}
+
+	@Override
+	public <T extends Annotation> T getDeclaredAnnotation(Class<T> annotationClass) {
+		return getAnnotation(annotationClass);
+	}
+
+	@Override
+	public <T extends Annotation> T[] getDeclaredAnnotationsByType(Class<T> annotationClass) {
+		return getAnnotationsByType(annotationClass);
+	}
+
+	@Override
+	public Annotation[] getDeclaredAnnotations() {
+		return getAnnotations();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof AnnotationSet)) {
+			return false;
+		}
+		AnnotationSet other = (AnnotationSet) obj;
+		if (annotations.length != other.annotations.length) {
+			return false;
+		}
+		for (Annotation annotation : annotations) {
+			if (!annotation.equals(other.getAnnotation(annotation.annotationType()))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = 0;
+		for (Annotation annotation : annotations) {
+			hash += annotation.hashCode();
+		}
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+		StringJoiner joiner = new StringJoiner(", ", "[", "]");
+		for (Annotation annotation : annotations) {
+			joiner.add(annotation.toString());
+		}
+		return joiner.toString();
+	}
+}
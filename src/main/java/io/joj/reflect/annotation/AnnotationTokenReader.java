@@ -0,0 +1,56 @@
+package io.joj.reflect.annotation;
+
+import java.io.IOException;
+
+/**
+ * Pull parser over a JSON-like stream of tokens, consumed by {@link AnnotationReader}. Implement it to read annotations
+ * from other configuration formats.
+ *
+ * @author findepi
+ * @see JsonTokenReader
+ */
+public interface AnnotationTokenReader {
+
+	enum Token {
+		BEGIN_OBJECT,
+		END_OBJECT,
+		BEGIN_ARRAY,
+		END_ARRAY,
+		/**
+		 * Name of object member, available as {@link AnnotationTokenReader#text()}.
+		 */
+		NAME,
+		/**
+		 * String value, available as {@link AnnotationTokenReader#text()}.
+		 */
+		STRING,
+		/**
+		 * Number value, available (as written in the source) as {@link AnnotationTokenReader#text()}.
+		 */
+		NUMBER,
+		/**
+		 * Boolean value, available as {@link AnnotationTokenReader#text()} ({@code "true"} or {@code "false"}).
+		 */
+		BOOLEAN,
+		NULL,
+		END_OF_INPUT,
+	}
+
+	/**
+	 * Advances to the next token.
+	 *
+	 * @throws AnnotationReadException
+	 *             when input is malformed
+	 */
+	Token next() throws IOException;
+
+	/**
+	 * @return text of the current token, see {@link Token}
+	 */
+	String text();
+
+	/**
+	 * @return human readable position of the current token in the source, e.g. {@code "line 3, column 14"}
+	 */
+	String position();
+}
@@ -17,7 +17,10 @@ import java.lang.reflect.Method;
 abstract class AnnotationValue {
 
 	public static AnnotationValue valueOf(Method getter, Object value) {
-		if (!requireNonNull(getter, "getter").getReturnType().isArray()) {
+		Class<?> type = requireNonNull(getter, "getter").getReturnType();
+		if (type.isPrimitive()) {
+			return PrimitiveAnnotationValue.primitiveValueOf(getter, value);
+		} else if (!type.isArray()) {
 			return new RegularAnnotationValue(getter, value);
 		} else {
 			return new ArrayAnnotationValue(getter, value);
@@ -73,7 +76,19 @@ abstract class AnnotationValue {
 
 	abstract boolean isValueEqual(Object otherValue);
 
+	/**
+	 * Compares values held by this and {@code other}, which holds value for the same annotation method.
+	 */
+	boolean isEqualTo(AnnotationValue other) {
+		return this == other || isValueEqual(other.storedValue());
+	}
+
 	public abstract Object getValue();
 
+	/**
+	 * @return stored value, without copying; must not be modified nor leaked
+	 */
+	abstract Object storedValue();
+
 	public abstract String valueToString();
 }
@@ -8,6 +8,7 @@ import java.util.Arrays;
 import java.util.function.Supplier;
 
 import io.joj.fluence.util.SupplierFluence;
+import io.joj.reflect.metrics.Metrics;
 
 /**
  * @author findepi
@@ -36,7 +37,7 @@ class ArrayAnnotationValue extends AnnotationValue {
 	 * @implSpec Does shallow clone of the array. In annotations, array values can never be multidimensional, and they
 	 *           can contain only immutable elements, so shallow clone is sufficient.
 	 */
-	private static Object cloneArray(Object array) {
+	static Object cloneArray(Object array) {
 		int length = Array.getLength(array);
 		Object copy = Array.newInstance(array.getClass().getComponentType(), length);
 		System.arraycopy(array, 0, copy, 0, length);
@@ -49,12 +50,7 @@ class ArrayAnnotationValue extends AnnotationValue {
 	 */
 	@Override
 	int hashCodeValue() {
-		try {
-			return (Integer) Arrays.class.getMethod("hashCode", arrayBaseClass(array.getClass()))
-					.invoke(null, array);
-		} catch (ReflectiveOperationException e) {
-			throw new RuntimeException(e);
-		}
+		return arrayHashCode(array);
 	}
 
 	@Override
@@ -71,11 +67,49 @@ class ArrayAnnotationValue extends AnnotationValue {
 
 	@Override
 	public Object getValue() {
+		Metrics.current().arrayCloned();
 		return cloneArray(array);
 	}
 
+	@Override
+	Object storedValue() {
+		return array;
+	}
+
 	@Override
 	public String valueToString() {
+		return arrayToString(array);
+	}
+
+	/**
+	 * Equivalent to {@code Arrays.hashCode(array)}, for either object or primitive array.
+	 */
+	static int arrayHashCode(Object array) {
+		try {
+			return (Integer) Arrays.class.getMethod("hashCode", arrayBaseClass(array.getClass()))
+					.invoke(null, array);
+		} catch (ReflectiveOperationException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Equivalent to {@code Arrays.equals(array, other)}, for either object or primitive array. {@code other} is expected
+	 * to be {@code null} or an array of the same type.
+	 */
+	static boolean arrayEquals(Object array, Object other) {
+		try {
+			return (Boolean) arraysEqualsMethod(array.getClass())
+					.invoke(null, array, other);
+		} catch (ReflectiveOperationException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Equivalent to {@code Arrays.toString(array)}, for either object or primitive array.
+	 */
+	static String arrayToString(Object array) {
 		try {
 			return (String) Arrays.class.getMethod("toString", arrayBaseClass(array.getClass()))
 					.invoke(null, array);
@@ -0,0 +1,603 @@
+package io.joj.reflect.annotation;
+
+import static io.joj.reflect.annotation.SyntheticAnnotationInvocationHandler.annotationTypeMethod;
+import static io.joj.reflect.annotation.SyntheticAnnotationInvocationHandler.equalsMethod;
+import static io.joj.reflect.annotation.SyntheticAnnotationInvocationHandler.hashCodeMethod;
+import static io.joj.reflect.annotation.SyntheticAnnotationInvocationHandler.toStringMethod;
+import static io.joj.reflect.annotation.SyntheticAnnotationInvocationHandler.writeReplaceMethod;
+import static io.joj.reflect.annotation.internal.Check.checkArgument;
+import static io.joj.reflect.annotation.internal.Check.checkState;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import io.joj.reflect.annotation.internal.Primitive;
+import io.joj.reflect.annotation.internal.Proxies;
+import io.joj.reflect.metrics.Metrics;
+
+/**
+ * Compact, append-only storage for large populations of synthetic annotations of a single type.
+ * <p>
+ * Values of each annotation attribute are stored in a separate column, which is a primitive array for {@code int},
+ * {@code long}, {@code boolean}, {@code float}, {@code double} (and the narrower integral types) attributes, and a
+ * reference array for all other attributes. An annotation returned from the store is a thin handle that only knows its row number, so
+ * per-annotation footprint is roughly the size of the row in the columns, plus the size of the handle for as long as
+ * the handle is kept.
+ * <p>
+ * Annotations from the store are complete and correct implementations of the annotation type, they are
+ * interchangeable with ones produced by {@link AnnotationBuilder} (in terms of {@link Annotation#hashCode()} and
+ * {@link Annotation#equals(Object)}).
+ * <p>
+ * This is an opt-in alternative for {@link AnnotationBuilder#buildFromMap(Class, Map)}, worth using only when number
+ * of annotations kept in memory is large. The store is thread-safe.
+ *
+ * @author findepi
+ */
+public final class CompactAnnotationStore<A extends Annotation> {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	public static <A extends Annotation> CompactAnnotationStore<A> create(Class<A> annotationClass) {
+		return new CompactAnnotationStore<>(AnnotationSchema.of(annotationClass));
+	}
+
+	private final AnnotationSchema<A> schema;
+	private final Column[] columns;
+	// hash codes of annotations, as they are cached in SyntheticAnnotationInvocationHandler
+	private final IntColumn hashes;
+
+	private volatile int size;
+	private int capacity;
+
+	private CompactAnnotationStore(AnnotationSchema<A> schema) {
+		this.schema = requireNonNull(schema, "schema");
+		this.columns = new Column[schema.size()];
+		for (int slot = 0; slot < schema.size(); slot++) {
+			columns[slot] = Column.forType(schema.getter(slot).getReturnType());
+		}
+		this.hashes = new IntColumn(int.class);
+	}
+
+	/**
+	 * Adds new annotation to the store.
+	 *
+	 * @param values
+	 *            map from annotation method name to value, as in {@link AnnotationBuilder#buildFromMap(Class, Map)}
+	 * @return handle for the added annotation, which is complete and correct implementation of the annotation type
+	 */
+	public A add(Map<String, ?> values) {
+		requireNonNull(values, "values");
+
+		Object[] rowValues;
+		try {
+			rowValues = validate(values);
+		} catch (IllegalArgumentException | ClassCastException | NullPointerException e) {
+			Metrics.current().validationFailed(schema.annotationClass());
+			throw e;
+		}
+
+		int row;
+		synchronized (this) {
+			row = size;
+			if (row == capacity) {
+				capacity = Math.max(INITIAL_CAPACITY, capacity + (capacity >> 1));
+				for (Column column : columns) {
+					column.grow(capacity);
+				}
+				hashes.grow(capacity);
+			}
+
+			int hash = 0;
+			for (int slot = 0; slot < columns.length; slot++) {
+				columns[slot].set(row, rowValues[slot]);
+				hash += (127 * schema.name(slot).hashCode()) ^ columns[slot].hashCodeValue(row);
+			}
+			hashes.set(row, hash);
+
+			// volatile write publishes the row
+			size = row + 1;
+		}
+
+		Metrics.current().annotationBuilt(schema.annotationClass());
+		return handle(row);
+	}
+
+	/**
+	 * Validates everything before the row is allocated, so that failed add has no effect.
+	 *
+	 * @return values for all slots
+	 */
+	private Object[] validate(Map<String, ?> values) {
+		Object[] rowValues = new Object[schema.size()];
+		for (int slot = 0; slot < schema.size(); slot++) {
+			Method annotationGetter = schema.getter(slot);
+			Object value;
+			if (values.containsKey(annotationGetter.getName())) {
+				value = requireNonNull(values.get(annotationGetter.getName()),
+						() -> format("null value for %s", annotationGetter));
+			} else if (schema.defaultValue(slot) != null) {
+				value = schema.defaultValue(slot);
+			} else {
+				throw new IllegalArgumentException(format("no value for %s", annotationGetter));
+			}
+			rowValues[slot] = AnnotationValue.checkValue(
+					Primitive.primitiveToWrapper.getOrDefault(annotationGetter.getReturnType(),
+							annotationGetter.getReturnType()),
+					value);
+		}
+
+		if (values.size() > 0) {
+			Set<String> unmapped = new HashSet<>(values.keySet());
+			unmapped.removeIf(name -> schema.slotOf(name) >= 0);
+			if (!unmapped.isEmpty()) {
+				throw new IllegalArgumentException(format(
+						"Some provided values do not have corresponding method in %s: %s",
+						schema.annotationClass(), unmapped));
+			}
+		}
+		return rowValues;
+	}
+
+	/**
+	 * @return handle for annotation previously added at position {@code row}
+	 */
+	public A get(int row) {
+		checkArgument(row >= 0 && row < size, "row %s out of bounds, size is %s", row, size);
+		return handle(row);
+	}
+
+	/**
+	 * @return number of annotations added to the store
+	 */
+	public int size() {
+		return size;
+	}
+
+	private A handle(int row) {
+		return Proxies.newSerializableProxyInstance(schema.annotationClass(), new Row(row));
+	}
+
+	/**
+	 * {@link InvocationHandler} of the handles. It is the only per-annotation object, apart from the proxy itself.
+	 */
+	private final class Row implements InvocationHandler {
+		private final int row;
+
+		Row(int row) {
+			this.row = row;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			if (hashCodeMethod.equals(method)) {
+				// computed when added
+				Metrics.current().hashCodeRequested(true);
+				return hashes.getInt(row);
+			}
+			if (equalsMethod.equals(method)) {
+				return equalsImpl(proxy, args[0]);
+			}
+			if (toStringMethod.equals(method)) {
+				return toStringImpl();
+			}
+			if (annotationTypeMethod.equals(method)) {
+				return schema.annotationClass();
+			}
+			if (writeReplaceMethod.equals(method)) {
+				// detached from the store, read back as regular synthetic annotation
+				return writeReplaceImpl();
+			}
+
+			int slot = schema.slotOf(method.getName());
+			checkState(slot >= 0 && schema.annotationClass() == method.getDeclaringClass(),
+					"Expected method of %s, got %s", schema.annotationClass(), method);
+			checkState(args == null, "Annotation interface methods are exepcted to be args-free");
+			return columns[slot].get(row);
+		}
+
+		private boolean equalsImpl(Object proxy, Object o) {
+			if (proxy == o) {
+				return true;
+			}
+			if (!schema.annotationClass().isInstance(o)) { // including null case
+				return false;
+			}
+
+			CompactAnnotationStore<?>.Row otherRow = sameStoreRow(o);
+			if (otherRow != null) {
+				if (hashes.getInt(row) != hashes.getInt(otherRow.row)) {
+					return false;
+				}
+				for (Column column : columns) {
+					if (!column.isValueEqual(row, otherRow.row)) {
+						return false;
+					}
+				}
+				return true;
+			}
+
+			for (int slot = 0; slot < columns.length; slot++) {
+				if (!columns[slot].isValueEqual(row, schema.valueIn(slot, o))) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private Object writeReplaceImpl() {
+			Object[] slotValues = new Object[columns.length];
+			for (int slot = 0; slot < columns.length; slot++) {
+				slotValues[slot] = columns[slot].get(row);
+			}
+			return new SerializedAnnotation(schema.annotationClass(), slotValues,
+					SyntheticAnnotationCompleteness.REQUIRE_COMPLETE);
+		}
+
+		private CompactAnnotationStore<?>.Row sameStoreRow(Object o) {
+			if (!Proxy.isProxyClass(o.getClass())) {
+				return null;
+			}
+			InvocationHandler handler = Proxy.getInvocationHandler(o);
+			if (handler instanceof CompactAnnotationStore.Row) {
+				CompactAnnotationStore<?>.Row otherRow = (CompactAnnotationStore<?>.Row) handler;
+				if (otherRow.store() == CompactAnnotationStore.this) {
+					return otherRow;
+				}
+			}
+			return null;
+		}
+
+		private CompactAnnotationStore<A> store() {
+			return CompactAnnotationStore.this;
+		}
+
+		private String toStringImpl() {
+			StringBuilder builder = new StringBuilder()
+					.append('@').append(schema.annotationClass().getName()).append('(');
+			for (int slot = 0; slot < columns.length; slot++) {
+				if (slot > 0) {
+					builder.append(", ");
+				}
+				builder.append(schema.name(slot)).append('=').append(columns[slot].valueToString(row));
+			}
+			return builder.append(')').toString();
+		}
+	}
+
+	/**
+	 * Values of one attribute. Writes are guarded by the store, and are published with {@link #size}. Reads are
+	 * lock-free.
+	 */
+	private static abstract class Column {
+
+		static Column forType(Class<?> type) {
+			if (type == int.class || type == short.class || type == byte.class || type == char.class) {
+				return new IntColumn(type);
+			}
+			if (type == long.class) {
+				return new LongColumn();
+			}
+			if (type == float.class) {
+				return new FloatColumn();
+			}
+			if (type == double.class) {
+				return new DoubleColumn();
+			}
+			if (type == boolean.class) {
+				return new BooleanColumn();
+			}
+			return new ReferenceColumn(type.isArray());
+		}
+
+		abstract void grow(int capacity);
+
+		abstract void set(int row, Object value);
+
+		abstract Object get(int row);
+
+		/**
+		 * @implSpec Conforms to {@link AnnotationValue#hashCodeValue()}.
+		 */
+		abstract int hashCodeValue(int row);
+
+		abstract boolean isValueEqual(int row, Object otherValue);
+
+		abstract boolean isValueEqual(int row, int otherRow);
+
+		abstract String valueToString(int row);
+	}
+
+	/**
+	 * Column for {@code int} and narrower integral types (as well as {@code char}). Their boxes' hash codes are all
+	 * equal to the {@code int} value.
+	 */
+	private static final class IntColumn extends Column {
+		private final Class<?> type;
+		private volatile int[] values = new int[0];
+
+		IntColumn(Class<?> type) {
+			this.type = type;
+		}
+
+		@Override
+		void grow(int capacity) {
+			values = Arrays.copyOf(values, capacity);
+		}
+
+		@Override
+		void set(int row, Object value) {
+			set(row, type == char.class ? (Character) value : ((Number) value).intValue());
+		}
+
+		void set(int row, int value) {
+			values[row] = value;
+		}
+
+		int getInt(int row) {
+			return values[row];
+		}
+
+		@Override
+		Object get(int row) {
+			int value = values[row];
+			if (type == int.class) {
+				return value;
+			} else if (type == short.class) {
+				return (short) value;
+			} else if (type == byte.class) {
+				return (byte) value;
+			} else {
+				return (char) value;
+			}
+		}
+
+		@Override
+		int hashCodeValue(int row) {
+			return values[row];
+		}
+
+		@Override
+		boolean isValueEqual(int row, Object otherValue) {
+			return get(row).equals(otherValue);
+		}
+
+		@Override
+		boolean isValueEqual(int row, int otherRow) {
+			int[] values = this.values;
+			return values[row] == values[otherRow];
+		}
+
+		@Override
+		String valueToString(int row) {
+			return get(row).toString();
+		}
+	}
+
+	private static final class LongColumn extends Column {
+		private volatile long[] values = new long[0];
+
+		@Override
+		void grow(int capacity) {
+			values = Arrays.copyOf(values, capacity);
+		}
+
+		@Override
+		void set(int row, Object value) {
+			values[row] = (Long) value;
+		}
+
+		@Override
+		Object get(int row) {
+			return values[row];
+		}
+
+		@Override
+		int hashCodeValue(int row) {
+			return Long.hashCode(values[row]);
+		}
+
+		@Override
+		boolean isValueEqual(int row, Object otherValue) {
+			return otherValue instanceof Long && values[row] == (Long) otherValue;
+		}
+
+		@Override
+		boolean isValueEqual(int row, int otherRow) {
+			long[] values = this.values;
+			return values[row] == values[otherRow];
+		}
+
+		@Override
+		String valueToString(int row) {
+			return Long.toString(values[row]);
+		}
+	}
+
+	private static final class FloatColumn extends Column {
+		private volatile float[] values = new float[0];
+
+		@Override
+		void grow(int capacity) {
+			values = Arrays.copyOf(values, capacity);
+		}
+
+		@Override
+		void set(int row, Object value) {
+			values[row] = (Float) value;
+		}
+
+		@Override
+		Object get(int row) {
+			return values[row];
+		}
+
+		@Override
+		int hashCodeValue(int row) {
+			return Float.hashCode(values[row]);
+		}
+
+		@Override
+		boolean isValueEqual(int row, Object otherValue) {
+			// Float.equals semantics
+			return otherValue instanceof Float
+					&& Float.floatToIntBits(values[row]) == Float.floatToIntBits((Float) otherValue);
+		}
+
+		@Override
+		boolean isValueEqual(int row, int otherRow) {
+			float[] values = this.values;
+			return Float.floatToIntBits(values[row]) == Float.floatToIntBits(values[otherRow]);
+		}
+
+		@Override
+		String valueToString(int row) {
+			return Float.toString(values[row]);
+		}
+	}
+
+	private static final class DoubleColumn extends Column {
+		private volatile double[] values = new double[0];
+
+		@Override
+		void grow(int capacity) {
+			values = Arrays.copyOf(values, capacity);
+		}
+
+		@Override
+		void set(int row, Object value) {
+			values[row] = (Double) value;
+		}
+
+		@Override
+		Object get(int row) {
+			return values[row];
+		}
+
+		@Override
+		int hashCodeValue(int row) {
+			return Double.hashCode(values[row]);
+		}
+
+		@Override
+		boolean isValueEqual(int row, Object otherValue) {
+			// Double.equals semantics
+			return otherValue instanceof Double
+					&& Double.doubleToLongBits(values[row]) == Double.doubleToLongBits((Double) otherValue);
+		}
+
+		@Override
+		boolean isValueEqual(int row, int otherRow) {
+			double[] values = this.values;
+			return Double.doubleToLongBits(values[row]) == Double.doubleToLongBits(values[otherRow]);
+		}
+
+		@Override
+		String valueToString(int row) {
+			return Double.toString(values[row]);
+		}
+	}
+
+	private static final class BooleanColumn extends Column {
+		private volatile boolean[] values = new boolean[0];
+
+		@Override
+		void grow(int capacity) {
+			values = Arrays.copyOf(values, capacity);
+		}
+
+		@Override
+		void set(int row, Object value) {
+			values[row] = (Boolean) value;
+		}
+
+		@Override
+		Object get(int row) {
+			return values[row];
+		}
+
+		@Override
+		int hashCodeValue(int row) {
+			return Boolean.hashCode(values[row]);
+		}
+
+		@Override
+		boolean isValueEqual(int row, Object otherValue) {
+			return otherValue instanceof Boolean && values[row] == (Boolean) otherValue;
+		}
+
+		@Override
+		boolean isValueEqual(int row, int otherRow) {
+			boolean[] values = this.values;
+			return values[row] == values[otherRow];
+		}
+
+		@Override
+		String valueToString(int row) {
+			return Boolean.toString(values[row]);
+		}
+	}
+
+	/**
+	 * Column for any other type, including arrays. Arrays are copied on the way in and on the way out.
+	 */
+	private static final class ReferenceColumn extends Column {
+		private final boolean array;
+		private volatile Object[] values = new Object[0];
+
+		ReferenceColumn(boolean array) {
+			this.array = array;
+		}
+
+		@Override
+		void grow(int capacity) {
+			values = Arrays.copyOf(values, capacity);
+		}
+
+		@Override
+		void set(int row, Object value) {
+			values[row] = array ? ArrayAnnotationValue.cloneArray(value) : value;
+		}
+
+		@Override
+		Object get(int row) {
+			Object value = values[row];
+			if (array) {
+				Metrics.current().arrayCloned();
+				return ArrayAnnotationValue.cloneArray(value);
+			}
+			return value;
+		}
+
+		@Override
+		int hashCodeValue(int row) {
+			Object value = values[row];
+			return array ? ArrayAnnotationValue.arrayHashCode(value) : value.hashCode();
+		}
+
+		@Override
+		boolean isValueEqual(int row, Object otherValue) {
+			Object value = values[row];
+			return array ? ArrayAnnotationValue.arrayEquals(value, otherValue) : value.equals(otherValue);
+		}
+
+		@Override
+		boolean isValueEqual(int row, int otherRow) {
+			Object[] values = this.values;
+			return isValueEqual(row, values[otherRow]);
+		}
+
+		@Override
+		String valueToString(int row) {
+			Object value = values[row];
+			return array ? ArrayAnnotationValue.arrayToString(value) : value.toString();
+		}
+	}
+}
@@ -0,0 +1,26 @@
+package io.joj.reflect.annotation;
+
+import java.lang.annotation.Annotation;
+import java.util.Map;
+
+/**
+ * Creates instances of compile-time generated implementation of an annotation type. Implementations are generated by
+ * {@link io.joj.reflect.annotation.processing.AnnotationImplementationProcessor} and registered as services (see
+ * {@link java.util.ServiceLoader}), so that {@link AnnotationBuilder} uses them instead of a {@link java.lang.reflect.Proxy
+ * Proxy}. A factory is used by threads whose context class loader is the factory's class loader, or its descendant.
+ *
+ * @author findepi
+ */
+public interface GeneratedAnnotationFactory<A extends Annotation> {
+
+	Class<A> annotationType();
+
+	/**
+	 * Counterpart of {@link AnnotationBuilder#buildFromMap(Class, Map)}.
+	 *
+	 * @param values
+	 *            map from annotation method name to value
+	 * @return complete and correct implementation of {@link #annotationType()}
+	 */
+	A create(Map<String, ?> values);
+}
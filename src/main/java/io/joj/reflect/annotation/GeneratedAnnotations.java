@@ -0,0 +1,242 @@
+package io.joj.reflect.annotation;
+
+import static io.joj.reflect.annotation.internal.Check.checkArgument;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+import java.lang.annotation.Annotation;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.joj.reflect.cache.Caches;
+import io.joj.reflect.cache.ClassKeyedCache;
+
+/**
+ * Run-time support for compile-time generated annotation implementations (see {@link GeneratedAnnotationFactory}).
+ * Public methods are meant to be called from generated code only.
+ *
+ * @author findepi
+ */
+public final class GeneratedAnnotations {
+	private GeneratedAnnotations() {
+	}
+
+	/*
+	 * Factories are looked up with the thread context class loader (or the annotation type's one, when there is none),
+	 * as generated implementations usually live in application class loaders, while annotation types may be shared.
+	 * Registrations visible from a loader are read once per loader, into an index of factories defined by that loader;
+	 * a lookup consults the indexes of the loader and its ancestors, closest first.
+	 * Nothing here references a loader, nor its factories, strongly: indexes are found by weak loader keys and are kept
+	 * alive by their factories' classes (see anchors), i.e. as long as the loader lives. The last lookup result for an
+	 * annotation type is cached, also weakly, for lock-free lookups from the same loader.
+	 */
+	private static final ClassKeyedCache<Resolution> resolutions = Caches
+			.newClassKeyedCache("generated-annotation-factories", type -> new Resolution());
+
+	// guarded by itself
+	private static final Map<ClassLoader, WeakReference<Map<Class<?>, GeneratedAnnotationFactory<?>>>> indexes =
+			new WeakHashMap<>();
+
+	private static final Map<Class<?>, GeneratedAnnotationFactory<?>> NO_FACTORIES = Collections.emptyMap();
+
+	// strong references from factory classes to the index of their loader
+	private static final ClassValue<AtomicReference<Object>> anchors = new ClassValue<AtomicReference<Object>>() {
+		@Override
+		protected AtomicReference<Object> computeValue(Class<?> type) {
+			return new AtomicReference<>();
+		}
+	};
+
+	/**
+	 * Last lookup result for an annotation type.
+	 */
+	private static final class Resolution {
+		volatile Resolved last;
+	}
+
+	private static final class Resolved {
+		final WeakReference<ClassLoader> loader;
+		// null when there is no factory
+		final WeakReference<GeneratedAnnotationFactory<?>> factory;
+
+		Resolved(ClassLoader loader, GeneratedAnnotationFactory<?> factory) {
+			this.loader = new WeakReference<>(loader);
+			this.factory = factory == null ? null : new WeakReference<>(factory);
+		}
+	}
+
+	static <A extends Annotation> Optional<GeneratedAnnotationFactory<A>> factoryFor(Class<A> annotationClass) {
+		ClassLoader loader = Thread.currentThread().getContextClassLoader();
+		if (loader == null) {
+			loader = annotationClass.getClassLoader();
+		}
+		if (loader == null) {
+			loader = ClassLoader.getSystemClassLoader();
+		}
+
+		Resolution resolution = resolutions.get(annotationClass);
+		Resolved last = resolution.last;
+		GeneratedAnnotationFactory<?> factory;
+		if (last != null && last.loader.get() == loader
+				&& (last.factory == null || last.factory.get() != null)) {
+			factory = last.factory == null ? null : last.factory.get();
+		} else {
+			factory = findFactory(annotationClass, loader);
+			resolution.last = new Resolved(loader, factory);
+		}
+
+		@SuppressWarnings("unchecked") // indexed by annotationType()
+		GeneratedAnnotationFactory<A> typed = (GeneratedAnnotationFactory<A>) factory;
+		return Optional.ofNullable(typed);
+	}
+
+	/**
+	 * @return factory defined by {@code loader}, or the closest of its ancestors, or {@code null}
+	 */
+	private static GeneratedAnnotationFactory<?> findFactory(Class<?> annotationClass, ClassLoader loader) {
+		for (ClassLoader candidate = loader; candidate != null; candidate = candidate.getParent()) {
+			GeneratedAnnotationFactory<?> factory = index(candidate).get(annotationClass);
+			if (factory != null) {
+				return factory;
+			}
+		}
+		return null;
+	}
+
+	private static Map<Class<?>, GeneratedAnnotationFactory<?>> index(ClassLoader loader) {
+		synchronized (indexes) {
+			WeakReference<Map<Class<?>, GeneratedAnnotationFactory<?>>> cached = indexes.get(loader);
+			Map<Class<?>, GeneratedAnnotationFactory<?>> index = cached != null ? cached.get() : null;
+			if (index == null) {
+				index = readIndex(loader);
+				indexes.put(loader, new WeakReference<>(index));
+			}
+			return index;
+		}
+	}
+
+	/**
+	 * Reads registrations visible from {@code loader}, and keeps factories defined by it.
+	 */
+	private static Map<Class<?>, GeneratedAnnotationFactory<?>> readIndex(ClassLoader loader) {
+		Map<Class<?>, GeneratedAnnotationFactory<?>> index = new HashMap<>();
+		@SuppressWarnings("rawtypes")
+		Iterator<GeneratedAnnotationFactory> iterator = ServiceLoader.load(GeneratedAnnotationFactory.class, loader)
+				.iterator();
+		while (true) {
+			GeneratedAnnotationFactory<?> factory;
+			try {
+				if (!iterator.hasNext()) {
+					break;
+				}
+				factory = iterator.next();
+			} catch (ServiceConfigurationError e) {
+				// stale or broken registration, cannot be used anyway
+				continue;
+			}
+			if (factory.getClass().getClassLoader() == loader) {
+				index.putIfAbsent(factory.annotationType(), factory);
+			}
+		}
+		if (index.isEmpty()) {
+			return NO_FACTORIES;
+		}
+
+		for (GeneratedAnnotationFactory<?> factory : index.values()) {
+			anchors.get(factory.getClass()).set(index);
+		}
+		return index;
+	}
+
+	/**
+	 * Extracts and validates value for an annotation method, like {@link SyntheticAnnotationInvocationHandler} does.
+	 *
+	 * @param expectedType
+	 *            wrapper type for primitive methods, return type otherwise
+	 * @param defaultValue
+	 *            default value, or {@code null} if there is no default
+	 */
+	public static <T> T value(Map<String, ?> values, Class<? extends Annotation> annotationClass, String name,
+			Class<T> expectedType, T defaultValue) {
+
+		Object value = values.get(name);
+		if (value == null) {
+			if (values.containsKey(name)) {
+				throw new NullPointerException(format("Null value for %s", name));
+			}
+			if (defaultValue == null) {
+				throw new IllegalArgumentException(format("no value for %s.%s()", annotationClass.getName(), name));
+			}
+			return defaultValue;
+		}
+		return expectedType.cast(AnnotationValue.checkValue(expectedType, value));
+	}
+
+	/**
+	 * Checks all provided values have corresponding annotation method, like
+	 * {@link SyntheticAnnotationInvocationHandler} does.
+	 */
+	public static void checkAllMapped(Map<String, ?> values, Class<? extends Annotation> annotationClass,
+			String... names) {
+		if (values.size() <= names.length) {
+			int mapped = 0;
+			for (String name : names) {
+				if (values.containsKey(name)) {
+					mapped++;
+				}
+			}
+			if (mapped == values.size()) {
+				return;
+			}
+		}
+
+		Set<String> unmapped = new HashSet<>(values.keySet());
+		for (String name : names) {
+			unmapped.remove(name);
+		}
+		throw new IllegalArgumentException(format("Some provided values do not have corresponding method in %s: %s",
+				annotationClass, unmapped));
+	}
+
+	/**
+	 * Returns serialized form of a generated annotation implementation, the same as of synthetic annotations (see
+	 * {@link SerializedAnnotation}). Values equal to defaults are not written.
+	 *
+	 * @param values
+	 *            values of all annotation methods, ordered by method name
+	 */
+	public static Object serializedForm(Class<? extends Annotation> annotationClass, Object... values) {
+		AnnotationSchema<?> schema = AnnotationSchema.of(annotationClass);
+		checkArgument(values.length == schema.size(), "Expected %s values for %s, got %s", schema.size(),
+				annotationClass, values.length);
+
+		Object[] slotValues = new Object[values.length];
+		for (int slot = 0; slot < values.length; slot++) {
+			AnnotationValue defaultValue = schema.defaultAnnotationValue(slot);
+			if (defaultValue == null || !defaultValue.isValueEqual(values[slot])) {
+				slotValues[slot] = values[slot];
+			}
+		}
+		return new SerializedAnnotation(annotationClass, slotValues, SyntheticAnnotationCompleteness.REQUIRE_COMPLETE);
+	}
+
+	/**
+	 * Reads default value of annotation method with reflection. Used by generated code for defaults that cannot be
+	 * expressed in source, i.e. nested annotations.
+	 */
+	public static <T> T defaultValue(Class<? extends Annotation> annotationClass, String name, Class<T> type) {
+		AnnotationSchema<?> schema = AnnotationSchema.of(annotationClass);
+		int slot = schema.slotOf(name);
+		return type.cast(requireNonNull(schema.getter(slot).getDefaultValue(), "defaultValue"));
+	}
+}
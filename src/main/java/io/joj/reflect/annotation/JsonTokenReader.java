@@ -0,0 +1,308 @@
+package io.joj.reflect.annotation;
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Minimal, strict JSON (RFC 7159) implementation of {@link AnnotationTokenReader}. Does not buffer more than single
+ * token.
+ *
+ * @author findepi
+ */
+public final class JsonTokenReader implements AnnotationTokenReader {
+
+	private enum Scope {
+		EMPTY_DOCUMENT,
+		NONEMPTY_DOCUMENT,
+		EMPTY_OBJECT,
+		DANGLING_NAME,
+		NONEMPTY_OBJECT,
+		EMPTY_ARRAY,
+		NONEMPTY_ARRAY,
+	}
+
+	private final Reader reader;
+	private final Deque<Scope> scopes = new ArrayDeque<>();
+	private final StringBuilder text = new StringBuilder();
+
+	// one character look-ahead, -2 when none
+	private int peeked = -2;
+	private int line = 1;
+	private int column = 0;
+
+	private int tokenLine;
+	private int tokenColumn;
+
+	public JsonTokenReader(Reader reader) {
+		this.reader = requireNonNull(reader, "reader");
+		scopes.push(Scope.EMPTY_DOCUMENT);
+	}
+
+	@Override
+	public Token next() throws IOException {
+		text.setLength(0);
+		int c = skipWhitespace();
+		tokenLine = line;
+		tokenColumn = column + 1;
+
+		switch (scopes.peek()) {
+		case EMPTY_DOCUMENT:
+			replaceScope(Scope.NONEMPTY_DOCUMENT);
+			return readValue(c);
+
+		case NONEMPTY_DOCUMENT:
+			if (c == -1) {
+				return Token.END_OF_INPUT;
+			}
+			throw syntaxError("Unexpected content after the document");
+
+		case EMPTY_OBJECT:
+		case NONEMPTY_OBJECT:
+			if (c == '}') {
+				read();
+				scopes.pop();
+				return Token.END_OBJECT;
+			}
+			if (scopes.peek() == Scope.NONEMPTY_OBJECT) {
+				expect(',');
+				c = skipWhitespace();
+				tokenLine = line;
+				tokenColumn = column + 1;
+			}
+			if (c != '"') {
+				throw syntaxError("Expected name");
+			}
+			replaceScope(Scope.DANGLING_NAME);
+			readString();
+			return Token.NAME;
+
+		case DANGLING_NAME:
+			expect(':');
+			c = skipWhitespace();
+			tokenLine = line;
+			tokenColumn = column + 1;
+			replaceScope(Scope.NONEMPTY_OBJECT);
+			return readValue(c);
+
+		case EMPTY_ARRAY:
+		case NONEMPTY_ARRAY:
+			if (c == ']') {
+				read();
+				scopes.pop();
+				return Token.END_ARRAY;
+			}
+			if (scopes.peek() == Scope.NONEMPTY_ARRAY) {
+				expect(',');
+				c = skipWhitespace();
+				tokenLine = line;
+				tokenColumn = column + 1;
+			}
+			replaceScope(Scope.NONEMPTY_ARRAY);
+			return readValue(c);
+
+		default:
+			throw new IllegalStateException("Unknown scope " + scopes.peek());
+		}
+	}
+
+	@Override
+	public String text() {
+		return text.toString();
+	}
+
+	@Override
+	public String position() {
+		return format("line %s, column %s", tokenLine, tokenColumn);
+	}
+
+	private Token readValue(int c) throws IOException {
+		switch (c) {
+		case '{':
+			read();
+			scopes.push(Scope.EMPTY_OBJECT);
+			return Token.BEGIN_OBJECT;
+		case '[':
+			read();
+			scopes.push(Scope.EMPTY_ARRAY);
+			return Token.BEGIN_ARRAY;
+		case '"':
+			readString();
+			return Token.STRING;
+		case 't':
+			readLiteral("true");
+			return Token.BOOLEAN;
+		case 'f':
+			readLiteral("false");
+			return Token.BOOLEAN;
+		case 'n':
+			readLiteral("null");
+			return Token.NULL;
+		case -1:
+			throw syntaxError("Unexpected end of input");
+		default:
+			if (c == '-' || (c >= '0' && c <= '9')) {
+				readNumber();
+				return Token.NUMBER;
+			}
+			throw syntaxError(format("Unexpected character '%c'", (char) c));
+		}
+	}
+
+	private void readString() throws IOException {
+		expect('"');
+		while (true) {
+			int c = read();
+			switch (c) {
+			case -1:
+				throw syntaxError("Unterminated string");
+			case '"':
+				return;
+			case '\\':
+				readEscape();
+				break;
+			default:
+				if (c < 0x20) {
+					throw syntaxError("Unescaped control character in string");
+				}
+				text.append((char) c);
+			}
+		}
+	}
+
+	private void readEscape() throws IOException {
+		int c = read();
+		switch (c) {
+		case '"':
+		case '\\':
+		case '/':
+			text.append((char) c);
+			break;
+		case 'b':
+			text.append('\b');
+			break;
+		case 'f':
+			text.append('\f');
+			break;
+		case 'n':
+			text.append('\n');
+			break;
+		case 'r':
+			text.append('\r');
+			break;
+		case 't':
+			text.append('\t');
+			break;
+		case 'u':
+			int codeUnit = 0;
+			for (int i = 0; i < 4; i++) {
+				int digit = Character.digit(read(), 16);
+				if (digit < 0) {
+					throw syntaxError("Invalid unicode escape");
+				}
+				codeUnit = codeUnit * 16 + digit;
+			}
+			text.append((char) codeUnit);
+			break;
+		default:
+			throw syntaxError("Invalid escape sequence");
+		}
+	}
+
+	private void readNumber() throws IOException {
+		if (peek() == '-') {
+			text.append((char) read());
+		}
+		if (!readDigits()) {
+			throw syntaxError("Invalid number");
+		}
+		if (peek() == '.') {
+			text.append((char) read());
+			if (!readDigits()) {
+				throw syntaxError("Invalid number");
+			}
+		}
+		if (peek() == 'e' || peek() == 'E') {
+			text.append((char) read());
+			if (peek() == '+' || peek() == '-') {
+				text.append((char) read());
+			}
+			if (!readDigits()) {
+				throw syntaxError("Invalid number");
+			}
+		}
+	}
+
+	private boolean readDigits() throws IOException {
+		boolean any = false;
+		while (peek() >= '0' && peek() <= '9') {
+			text.append((char) read());
+			any = true;
+		}
+		return any;
+	}
+
+	private void readLiteral(String literal) throws IOException {
+		for (int i = 0; i < literal.length(); i++) {
+			if (read() != literal.charAt(i)) {
+				throw syntaxError("Invalid literal, expected " + literal);
+			}
+		}
+		text.append(literal);
+	}
+
+	private void expect(char expected) throws IOException {
+		int c = read();
+		if (c != expected) {
+			throw syntaxError(c == -1
+					? format("Expected '%c', got end of input", expected)
+					: format("Expected '%c', got '%c'", expected, (char) c));
+		}
+	}
+
+	private void replaceScope(Scope scope) {
+		scopes.pop();
+		scopes.push(scope);
+	}
+
+	/**
+	 * @return next non-whitespace character, without consuming it, or -1
+	 */
+	private int skipWhitespace() throws IOException {
+		while (true) {
+			int c = peek();
+			if (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+				read();
+			} else {
+				return c;
+			}
+		}
+	}
+
+	private int peek() throws IOException {
+		if (peeked == -2) {
+			peeked = reader.read();
+		}
+		return peeked;
+	}
+
+	private int read() throws IOException {
+		int c = peek();
+		peeked = -2;
+		if (c == '\n') {
+			line++;
+			column = 0;
+		} else if (c != -1) {
+			column++;
+		}
+		return c;
+	}
+
+	private AnnotationReadException syntaxError(String message) {
+		return new AnnotationReadException(message, format("line %s, column %s", line, column));
+	}
+}
@@ -0,0 +1,317 @@
+package io.joj.reflect.annotation;
+
+import static io.joj.reflect.annotation.internal.Check.checkArgument;
+
+import java.lang.reflect.Method;
+
+/**
+ * Holds single primitive value, unboxed. Hash code contribution is computed from the primitive, and the value is boxed
+ * only when returned from a getter, with {@code valueOf} (so that JDK box caches are used).
+ *
+ * @author findepi
+ */
+abstract class PrimitiveAnnotationValue extends AnnotationValue {
+
+	static PrimitiveAnnotationValue primitiveValueOf(Method getter, Object value) {
+		Class<?> type = getter.getReturnType();
+		checkArgument(type.isPrimitive(), "expected primitive type");
+		if (type == int.class) {
+			return new IntValue(getter, (Integer) checkValue(Integer.class, value));
+		}
+		if (type == long.class) {
+			return new LongValue(getter, (Long) checkValue(Long.class, value));
+		}
+		if (type == boolean.class) {
+			return new BooleanValue(getter, (Boolean) checkValue(Boolean.class, value));
+		}
+		if (type == double.class) {
+			return new DoubleValue(getter, (Double) checkValue(Double.class, value));
+		}
+		if (type == float.class) {
+			return new FloatValue(getter, (Float) checkValue(Float.class, value));
+		}
+		if (type == short.class) {
+			return new ShortValue(getter, (Short) checkValue(Short.class, value));
+		}
+		if (type == byte.class) {
+			return new ByteValue(getter, (Byte) checkValue(Byte.class, value));
+		}
+		return new CharValue(getter, (Character) checkValue(Character.class, value));
+	}
+
+	PrimitiveAnnotationValue(Method getter) {
+		super(getter);
+	}
+
+	@Override
+	Object storedValue() {
+		return getValue();
+	}
+
+	@Override
+	public String valueToString() {
+		return getValue().toString();
+	}
+
+	private static final class IntValue extends PrimitiveAnnotationValue {
+		private final int value;
+
+		IntValue(Method getter, int value) {
+			super(getter);
+			this.value = value;
+		}
+
+		@Override
+		int hashCodeValue() {
+			return Integer.hashCode(value);
+		}
+
+		@Override
+		boolean isValueEqual(Object otherValue) {
+			return otherValue instanceof Integer && (Integer) otherValue == value;
+		}
+
+		@Override
+		boolean isEqualTo(AnnotationValue other) {
+			return other instanceof IntValue
+					? ((IntValue) other).value == value
+					: super.isEqualTo(other);
+		}
+
+		@Override
+		public Object getValue() {
+			return Integer.valueOf(value);
+		}
+	}
+
+	private static final class LongValue extends PrimitiveAnnotationValue {
+		private final long value;
+
+		LongValue(Method getter, long value) {
+			super(getter);
+			this.value = value;
+		}
+
+		@Override
+		int hashCodeValue() {
+			return Long.hashCode(value);
+		}
+
+		@Override
+		boolean isValueEqual(Object otherValue) {
+			return otherValue instanceof Long && (Long) otherValue == value;
+		}
+
+		@Override
+		boolean isEqualTo(AnnotationValue other) {
+			return other instanceof LongValue
+					? ((LongValue) other).value == value
+					: super.isEqualTo(other);
+		}
+
+		@Override
+		public Object getValue() {
+			return Long.valueOf(value);
+		}
+	}
+
+	private static final class BooleanValue extends PrimitiveAnnotationValue {
+		private final boolean value;
+
+		BooleanValue(Method getter, boolean value) {
+			super(getter);
+			this.value = value;
+		}
+
+		@Override
+		int hashCodeValue() {
+			return Boolean.hashCode(value);
+		}
+
+		@Override
+		boolean isValueEqual(Object otherValue) {
+			return otherValue instanceof Boolean && (Boolean) otherValue == value;
+		}
+
+		@Override
+		boolean isEqualTo(AnnotationValue other) {
+			return other instanceof BooleanValue
+					? ((BooleanValue) other).value == value
+					: super.isEqualTo(other);
+		}
+
+		@Override
+		public Object getValue() {
+			return Boolean.valueOf(value);
+		}
+	}
+
+	/**
+	 * Compares as {@link Double#equals(Object)} does, i.e. by bits.
+	 */
+	private static final class DoubleValue extends PrimitiveAnnotationValue {
+		private final double value;
+
+		DoubleValue(Method getter, double value) {
+			super(getter);
+			this.value = value;
+		}
+
+		@Override
+		int hashCodeValue() {
+			return Double.hashCode(value);
+		}
+
+		@Override
+		boolean isValueEqual(Object otherValue) {
+			return otherValue instanceof Double && isEqual((Double) otherValue);
+		}
+
+		@Override
+		boolean isEqualTo(AnnotationValue other) {
+			return other instanceof DoubleValue
+					? isEqual(((DoubleValue) other).value)
+					: super.isEqualTo(other);
+		}
+
+		private boolean isEqual(double other) {
+			return Double.doubleToLongBits(other) == Double.doubleToLongBits(value);
+		}
+
+		@Override
+		public Object getValue() {
+			return Double.valueOf(value);
+		}
+	}
+
+	/**
+	 * Compares as {@link Float#equals(Object)} does, i.e. by bits.
+	 */
+	private static final class FloatValue extends PrimitiveAnnotationValue {
+		private final float value;
+
+		FloatValue(Method getter, float value) {
+			super(getter);
+			this.value = value;
+		}
+
+		@Override
+		int hashCodeValue() {
+			return Float.hashCode(value);
+		}
+
+		@Override
+		boolean isValueEqual(Object otherValue) {
+			return otherValue instanceof Float && isEqual((Float) otherValue);
+		}
+
+		@Override
+		boolean isEqualTo(AnnotationValue other) {
+			return other instanceof FloatValue
+					? isEqual(((FloatValue) other).value)
+					: super.isEqualTo(other);
+		}
+
+		private boolean isEqual(float other) {
+			return Float.floatToIntBits(other) == Float.floatToIntBits(value);
+		}
+
+		@Override
+		public Object getValue() {
+			return Float.valueOf(value);
+		}
+	}
+
+	private static final class ShortValue extends PrimitiveAnnotationValue {
+		private final short value;
+
+		ShortValue(Method getter, short value) {
+			super(getter);
+			this.value = value;
+		}
+
+		@Override
+		int hashCodeValue() {
+			return Short.hashCode(value);
+		}
+
+		@Override
+		boolean isValueEqual(Object otherValue) {
+			return otherValue instanceof Short && (Short) otherValue == value;
+		}
+
+		@Override
+		boolean isEqualTo(AnnotationValue other) {
+			return other instanceof ShortValue
+					? ((ShortValue) other).value == value
+					: super.isEqualTo(other);
+		}
+
+		@Override
+		public Object getValue() {
+			return Short.valueOf(value);
+		}
+	}
+
+	private static final class ByteValue extends PrimitiveAnnotationValue {
+		private final byte value;
+
+		ByteValue(Method getter, byte value) {
+			super(getter);
+			this.value = value;
+		}
+
+		@Override
+		int hashCodeValue() {
+			return Byte.hashCode(value);
+		}
+
+		@Override
+		boolean isValueEqual(Object otherValue) {
+			return otherValue instanceof Byte && (Byte) otherValue == value;
+		}
+
+		@Override
+		boolean isEqualTo(AnnotationValue other) {
+			return other instanceof ByteValue
+					? ((ByteValue) other).value == value
+					: super.isEqualTo(other);
+		}
+
+		@Override
+		public Object getValue() {
+			return Byte.valueOf(value);
+		}
+	}
+
+	private static final class CharValue extends PrimitiveAnnotationValue {
+		private final char value;
+
+		CharValue(Method getter, char value) {
+			super(getter);
+			this.value = value;
+		}
+
+		@Override
+		int hashCodeValue() {
+			return Character.hashCode(value);
+		}
+
+		@Override
+		boolean isValueEqual(Object otherValue) {
+			return otherValue instanceof Character && (Character) otherValue == value;
+		}
+
+		@Override
+		boolean isEqualTo(AnnotationValue other) {
+			return other instanceof CharValue
+					? ((CharValue) other).value == value
+					: super.isEqualTo(other);
+		}
+
+		@Override
+		public Object getValue() {
+			return Character.valueOf(value);
+		}
+	}
+}
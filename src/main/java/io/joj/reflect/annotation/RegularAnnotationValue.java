@@ -33,7 +33,8 @@ class RegularAnnotationValue extends AnnotationValue {
 
 	@Override
 	boolean isValueEqual(Object otherValue) {
-		return value.equals(otherValue);
+		// identity shortcut for shared (e.g. canonical nested) values
+		return value == otherValue || value.equals(otherValue);
 	}
 
 	/**
@@ -43,6 +44,11 @@ class RegularAnnotationValue extends AnnotationValue {
 		return value;
 	}
 
+	@Override
+	Object storedValue() {
+		return value;
+	}
+
 	@Override
 	public String valueToString() {
 		return getValue().toString();
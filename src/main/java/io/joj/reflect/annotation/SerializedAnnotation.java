@@ -0,0 +1,75 @@
+package io.joj.reflect.annotation;
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.lang.annotation.Annotation;
+
+import io.joj.reflect.annotation.internal.SerializableProxy;
+
+/**
+ * Serialized form of synthetic annotations and value objects (see {@link SerializableProxy}): the implemented type and
+ * values indexed by {@link AnnotationSchema} slots (i.e. ordered by attribute name), {@code null} where not provided.
+ * Defaults are not written, nor are attribute names or invocation handlers.
+ * <p>
+ * Deserialized annotations are built directly from slots, and are {@link AnnotationInterner interned}, so that equal
+ * annotations read from many payloads share single instance.
+ * <p>
+ * Adding, or removing, an attribute makes previously serialized forms of the type unreadable.
+ *
+ * @author findepi
+ */
+final class SerializedAnnotation implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	// written as class name
+	private final Class<?> type;
+	private final Object[] slotValues;
+	private final SyntheticAnnotationCompleteness completeness;
+
+	SerializedAnnotation(Class<?> type, Object[] slotValues, SyntheticAnnotationCompleteness completeness) {
+		this.type = requireNonNull(type, "type");
+		this.slotValues = requireNonNull(slotValues, "slotValues");
+		this.completeness = requireNonNull(completeness, "completeness");
+	}
+
+	private Object readResolve() throws ObjectStreamException {
+		if (type == null || slotValues == null || completeness == null) {
+			throw new InvalidObjectException("Incomplete serialized annotation");
+		}
+		try {
+			if (type.isAnnotation()) {
+				return readAnnotation(type.asSubclass(Annotation.class));
+			}
+			return readValueObject(type);
+		} catch (IllegalArgumentException | ClassCastException | NullPointerException e) {
+			InvalidObjectException exception = new InvalidObjectException(format("Cannot read %s: %s", type,
+					e.getMessage()));
+			exception.initCause(e);
+			throw exception;
+		}
+	}
+
+	private <A extends Annotation> A readAnnotation(Class<A> annotationClass) throws InvalidObjectException {
+		AnnotationSchema<A> schema = AnnotationSchema.of(annotationClass);
+		checkSize(schema);
+		return AnnotationInterner.intern(AnnotationBuilder.buildFromSlots(schema, slotValues, completeness));
+	}
+
+	private <T> T readValueObject(Class<T> valueInterface) throws InvalidObjectException {
+		AnnotationSchema<T> schema = AnnotationSchema.ofValueType(valueInterface);
+		checkSize(schema);
+		return ValueObjectBuilder.buildFromSlots(schema, slotValues);
+	}
+
+	private void checkSize(AnnotationSchema<?> schema) throws InvalidObjectException {
+		if (slotValues.length != schema.size()) {
+			throw new InvalidObjectException(format("%s has %s attributes, but %s were serialized", type,
+					schema.size(), slotValues.length));
+		}
+	}
+}
@@ -3,32 +3,36 @@ package io.joj.reflect.annotation;
 import static io.joj.reflect.annotation.internal.Check.checkState;
 import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
-import static java.util.stream.Collectors.joining;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
-import java.util.AbstractMap;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
+import io.joj.reflect.annotation.internal.SerializableProxy;
+import io.joj.reflect.metrics.Metrics;
+
 /**
- * {@link InvocationHandler} implementing an {@link Annotation}.
+ * {@link InvocationHandler} implementing an {@link Annotation}, or a value interface (see {@link ValueObjectBuilder}).
  *
  * @author findepi
  */
-final class SyntheticAnnotationInvocationHandler<A extends Annotation> implements InvocationHandler {
+final class SyntheticAnnotationInvocationHandler<A> implements InvocationHandler {
 
-	private static final Method equalsMethod;
-	private static final Method hashCodeMethod;
-	private static final Method toStringMethod;
-	private static final Method annotationTypeMethod;
+	static final Method equalsMethod;
+	static final Method hashCodeMethod;
+	static final Method toStringMethod;
+	static final Method annotationTypeMethod;
+	static final Method writeReplaceMethod;
 
 	static {
 		try {
@@ -36,67 +40,184 @@ final class SyntheticAnnotationInvocationHandler<A extends Annotation> implement
 			hashCodeMethod = Object.class.getMethod("hashCode");
 			toStringMethod = Object.class.getMethod("toString");
 			annotationTypeMethod = Annotation.class.getMethod("annotationType");
+			writeReplaceMethod = SerializableProxy.class.getMethod("writeReplace");
 
 		} catch (ReflectiveOperationException e) {
 			throw new RuntimeException(e);
 		}
 	}
 
+	// contribution of value() name to hash code, see Annotation#hashCode()
+	private static final int VALUE_NAME_HASH = 127 * "value".hashCode();
+	private static final int[] SINGLE_SLOT = { 0 };
+
 	private final Class<A> annotationClass;
+	private final AnnotationSchema<A> schema;
 	private final SyntheticAnnotationCompleteness completeness;
-	// immutable
-	private final Map<String, AnnotationValue> values;
+	/*
+	 * Only explicitly provided values are stored, ordered by slot. Other attributes take their values from the shared
+	 * defaults of the schema.
+	 */
+	private final int[] explicitSlots;
+	private final AnnotationValue[] explicitValues;
 
 	private int hash;
 
 	public SyntheticAnnotationInvocationHandler(Class<A> annotationClass, Map<String, ?> values,
 			SyntheticAnnotationCompleteness completeness) {
 
-		this.annotationClass = requireNonNull(annotationClass, "annotationClass");
+		this(AnnotationSchema.ofType(requireNonNull(annotationClass, "annotationClass")), values, completeness);
+	}
+
+	private SyntheticAnnotationInvocationHandler(AnnotationSchema<A> schema, Map<String, ?> values,
+			SyntheticAnnotationCompleteness completeness) {
+
+		this(schema, toSlots(schema, values), completeness);
+	}
+
+	/**
+	 * @param slotValues
+	 *            values indexed by {@link AnnotationSchema} slots, {@code null} where not provided; not retained
+	 */
+	SyntheticAnnotationInvocationHandler(AnnotationSchema<A> schema, Object[] slotValues,
+			SyntheticAnnotationCompleteness completeness) {
+
+		this.annotationClass = schema.annotationClass();
+		this.schema = schema;
 		this.completeness = requireNonNull(completeness, "completeness");
 
+		int explicitCount = 0;
+		for (int slot = 0; slot < schema.size(); slot++) {
+			if (slotValues[slot] != null) {
+				explicitCount++;
+			} else if (schema.defaultAnnotationValue(slot) == null
+					&& completeness == SyntheticAnnotationCompleteness.REQUIRE_COMPLETE) {
+				throw new IllegalArgumentException(format("no value for %s", schema.getter(slot)));
+			}
+		}
+
+		this.explicitSlots = new int[explicitCount];
+		this.explicitValues = new AnnotationValue[explicitCount];
+		int index = 0;
+		for (int slot = 0; slot < schema.size(); slot++) {
+			if (slotValues[slot] != null) {
+				explicitSlots[index] = slot;
+				explicitValues[index] = AnnotationValue.valueOf(schema.getter(slot), slotValues[slot]);
+				index++;
+			}
+		}
+	}
+
+	private SyntheticAnnotationInvocationHandler(AnnotationSchema<A> schema, int[] explicitSlots,
+			AnnotationValue[] explicitValues, SyntheticAnnotationCompleteness completeness, int hash) {
+
+		this.annotationClass = schema.annotationClass();
+		this.schema = schema;
+		this.completeness = completeness;
+		this.explicitSlots = explicitSlots;
+		this.explicitValues = explicitValues;
+		this.hash = hash;
+	}
+
+	/**
+	 * Creates handler of an annotation with single {@code value()} attribute (see
+	 * {@link AnnotationSchema#isSingleValue()}), without looking up names. Its hash code is computed from the value only.
+	 */
+	static <A> SyntheticAnnotationInvocationHandler<A> ofSingleValue(AnnotationSchema<A> schema, Object value,
+			SyntheticAnnotationCompleteness completeness) {
+
+		AnnotationValue annotationValue = AnnotationValue.valueOf(schema.getter(0), value);
+		return new SyntheticAnnotationInvocationHandler<>(schema, SINGLE_SLOT,
+				new AnnotationValue[] { annotationValue }, requireNonNull(completeness, "completeness"), 0);
+	}
+
+	/**
+	 * Creates handlers differing in value of {@code slot} only, one per element of {@code variedValues}. Holders of
+	 * other values, and the slots array, are shared. Hash codes are computed incrementally: hash code of the first
+	 * handler, minus contribution of its varied value, plus contribution of handler's own.
+	 *
+	 * @param slotValues
+	 *            values indexed by {@link AnnotationSchema} slots, {@code null} where not provided; not retained
+	 */
+	static <A> List<SyntheticAnnotationInvocationHandler<A>> variants(AnnotationSchema<A> schema, Object[] slotValues,
+			int slot, Iterable<?> variedValues, SyntheticAnnotationCompleteness completeness) {
+
+		Iterator<?> iterator = variedValues.iterator();
+		if (!iterator.hasNext()) {
+			return Collections.emptyList();
+		}
+
+		Object[] firstSlotValues = slotValues.clone();
+		firstSlotValues[slot] = requireNonNull(iterator.next(), "annotation value cannot be null");
+		SyntheticAnnotationInvocationHandler<A> first = new SyntheticAnnotationInvocationHandler<>(schema,
+				firstSlotValues, completeness);
+		int index = Arrays.binarySearch(first.explicitSlots, slot);
+		int sharedHash = first.hashCodeImpl() - first.explicitValues[index].hashCodeNameAndValue();
+
+		List<SyntheticAnnotationInvocationHandler<A>> variants = new ArrayList<>();
+		variants.add(first);
+		while (iterator.hasNext()) {
+			AnnotationValue value = AnnotationValue.valueOf(schema.getter(slot), iterator.next());
+			AnnotationValue[] explicitValues = first.explicitValues.clone();
+			explicitValues[index] = value;
+			variants.add(new SyntheticAnnotationInvocationHandler<>(schema, first.explicitSlots, explicitValues,
+					completeness, sharedHash + value.hashCodeNameAndValue()));
+		}
+		return variants;
+	}
+
+	/**
+	 * @return effective value of the attribute, or {@code null} if it has none (incomplete annotation)
+	 */
+	AnnotationValue valueAt(int slot) {
+		int index = Arrays.binarySearch(explicitSlots, slot);
+		if (index >= 0) {
+			return explicitValues[index];
+		}
+		return schema.defaultAnnotationValue(slot);
+	}
+
+	/**
+	 * Converts values keyed by name to values indexed by slot.
+	 */
+	static Object[] toSlots(AnnotationSchema<?> schema, Map<String, ?> values) {
 		values.entrySet().forEach(entry -> {
 			if (entry.getValue() == null) {
 				throw new NullPointerException(format("Null value for %s", entry.getKey()));
 			}
 		});
 
-		Map<String, AnnotationValue> effectiveValues = new HashMap<>();
-		for (Method annotationGetter : annotationClass.getDeclaredMethods()) {
-			if (Modifier.isStatic(annotationGetter.getModifiers())) {
-				continue;
-			}
-
-			Object effectiveValue;
-			if (values.containsKey(annotationGetter.getName())) {
-				// explicit value
-				effectiveValue = requireNonNull(values.get(annotationGetter.getName()),
-						() -> format("null value for %s", annotationGetter));
-			} else if (annotationGetter.getDefaultValue() != null) {
-				// default value
-				effectiveValue = annotationGetter.getDefaultValue();
+		Object[] slotValues = new Object[schema.size()];
+		Set<String> unmapped = null;
+		for (Entry<String, ?> entry : values.entrySet()) {
+			int slot = schema.slotOf(entry.getKey());
+			if (slot >= 0) {
+				slotValues[slot] = entry.getValue();
 			} else {
-				// no value
-				if (completeness == SyntheticAnnotationCompleteness.REQUIRE_COMPLETE) {
-					throw new IllegalArgumentException(format("no value for %s", annotationGetter));
-				} else {
-					continue;
+				if (unmapped == null) {
+					unmapped = new HashSet<>();
 				}
+				unmapped.add(entry.getKey());
 			}
-
-			effectiveValues.put(annotationGetter.getName(),
-					AnnotationValue.valueOf(annotationGetter, effectiveValue));
 		}
 
-		// Finally, check all provided values did not contain too many (i.e. unmapped) entries
-		Set<String> unmapped = new HashSet<>(values.keySet());
-		unmapped.removeAll(effectiveValues.keySet());
-		if (!unmapped.isEmpty()) {
+		// Check all provided values did not contain too many (i.e. unmapped) entries
+		if (unmapped != null) {
 			throw new IllegalArgumentException(format("Some provided values do not have corresponding method in %s: %s",
-					annotationClass, unmapped));
+					schema.annotationClass(), unmapped));
 		}
+		return slotValues;
+	}
+
+	SyntheticAnnotationCompleteness completeness() {
+		return completeness;
+	}
 
-		this.values = Collections.unmodifiableMap(effectiveValues);
+	/**
+	 * @return slots of explicitly provided values, in ascending order; must not be modified
+	 */
+	int[] explicitSlots() {
+		return explicitSlots;
 	}
 
 	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
@@ -115,12 +236,14 @@ final class SyntheticAnnotationInvocationHandler<A extends Annotation> implement
 		if (annotationTypeMethod.equals(method)) {
 			return annotationTypeImpl();
 		}
+		if (writeReplaceMethod.equals(method)) {
+			return writeReplaceImpl();
+		}
 
 		/*
-		 * Now `method' must be a method of the implemented interface. And since annotations don't support inheritance,
-		 * we may easily check this.
+		 * Now `method' must be a method of the implemented interface (or its super-interface, for value interfaces).
 		 */
-		checkState(annotationClass == method.getDeclaringClass(), "Expected method of %s, got %s",
+		checkState(method.getDeclaringClass().isAssignableFrom(annotationClass), "Expected method of %s, got %s",
 				annotationClass, method);
 		checkState(args == null, "Annotation interface methods are exepcted to be args-free");
 		return valueFor(method);
@@ -130,13 +253,27 @@ final class SyntheticAnnotationInvocationHandler<A extends Annotation> implement
 	 * Implements {@link Annotation#hashCode()}.
 	 */
 	int hashCodeImpl() {
-		if (hash != 0 || values.isEmpty()) {
+		if (hash != 0 || schema.size() == 0) {
 			// hash cache; annotation without values has 0 hash code
+			Metrics.current().hashCodeRequested(true);
 			return hash;
 		}
-		hash = values.values().stream()
-				.mapToInt(AnnotationValue::hashCodeNameAndValue)
-				.sum();
+		Metrics.current().hashCodeRequested(false);
+		if (explicitSlots == SINGLE_SLOT) {
+			// created by ofSingleValue, value() is the only attribute
+			this.hash = VALUE_NAME_HASH ^ explicitValues[0].hashCodeValue();
+			return this.hash;
+		}
+		// start from precomputed hash of defaults and replace contributions of overridden ones
+		int hash = schema.defaultsHashCode();
+		for (int index = 0; index < explicitSlots.length; index++) {
+			AnnotationValue defaultValue = schema.defaultAnnotationValue(explicitSlots[index]);
+			if (defaultValue != null) {
+				hash -= defaultValue.hashCodeNameAndValue();
+			}
+			hash += explicitValues[index].hashCodeNameAndValue();
+		}
+		this.hash = hash;
 		return hash;
 	}
 
@@ -148,44 +285,131 @@ final class SyntheticAnnotationInvocationHandler<A extends Annotation> implement
 			return false;
 		}
 
-		@SuppressWarnings("unchecked") // already checked
-		A other = (A) o;
+		SyntheticAnnotationInvocationHandler<?> otherHandler = handlerOf(o);
+		if (otherHandler != null) {
+			if (otherHandler.annotationClass != annotationClass && !annotationClass.isAnnotation()) {
+				// instance of a sub-interface; values are equal only when of the same interface
+				return false;
+			}
+			if (otherHandler.schema == schema && otherHandler.hasValuesFor(explicitSlots)) {
+				return equalsHandler(otherHandler);
+			}
+		}
 
-		boolean allValuesEqual = values.entrySet().stream()
-				.allMatch(entry -> {
-					return entry.getValue().isValueEqualIn(other);
-				});
+		for (int slot = 0; slot < schema.size(); slot++) {
+			AnnotationValue value = valueAt(slot);
+			if (value != null && !value.isValueEqual(schema.valueIn(slot, o))) {
+				return false;
+			}
+		}
+		return true;
+	}
 
-		return allValuesEqual;
+	private boolean hasValuesFor(int[] slots) {
+		for (int slot : slots) {
+			if (valueAt(slot) == null) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Compares stored values directly, without calling (copying) getters of the other annotation. Only attributes
+	 * explicitly provided to either of the annotations are compared, as the others share default values. Like
+	 * comparison through getters, only attributes having a value in this annotation are compared.
+	 *
+	 * @param other
+	 *            handler of the same schema, having values for all explicit attributes of this one
+	 */
+	private boolean equalsHandler(SyntheticAnnotationInvocationHandler<?> other) {
+		if (hash != 0 && other.hash != 0 && hash != other.hash
+				&& completeness == SyntheticAnnotationCompleteness.REQUIRE_COMPLETE
+				&& other.completeness == SyntheticAnnotationCompleteness.REQUIRE_COMPLETE) {
+			return false;
+		}
+		for (int index = 0; index < explicitSlots.length; index++) {
+			if (!explicitValues[index].isEqualTo(other.valueAt(explicitSlots[index]))) {
+				return false;
+			}
+		}
+		for (int index = 0; index < other.explicitSlots.length; index++) {
+			int slot = other.explicitSlots[index];
+			if (Arrays.binarySearch(explicitSlots, slot) < 0) {
+				// this one has the default value, if any
+				AnnotationValue defaultValue = schema.defaultAnnotationValue(slot);
+				if (defaultValue != null && !defaultValue.isEqualTo(other.explicitValues[index])) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return handler of {@code annotation}, if it is implemented with {@link SyntheticAnnotationInvocationHandler}, or
+	 *         {@code null}
+	 */
+	static SyntheticAnnotationInvocationHandler<?> handlerOf(Object annotation) {
+		if (annotation == null || !Proxy.isProxyClass(annotation.getClass())) {
+			return null;
+		}
+		InvocationHandler handler = Proxy.getInvocationHandler(annotation);
+		if (handler instanceof SyntheticAnnotationInvocationHandler) {
+			return (SyntheticAnnotationInvocationHandler<?>) handler;
+		}
+		return null;
 	}
 
 	String toStringImpl() {
-		String valuesToString = values.entrySet().stream()
-				// Sort to have deterministic toString(). Useful at least for tests, if not for humans.
-				.sorted(Comparator.comparing(Entry::getKey))
-				// Extract name and value's toString
-				.map(entry -> entry(entry.getKey(), entry.getValue().valueToString()))
-				// Join them
-				.map(entry -> format("%s=%s", entry.getKey(), entry.getValue()))
-				.collect(joining(", "));
+		boolean isAnnotation = annotationClass.isAnnotation();
+		StringBuilder builder = new StringBuilder();
+		if (isAnnotation) {
+			builder.append('@').append(annotationClass.getName()).append('(');
+		} else {
+			// like records do
+			builder.append(annotationClass.getSimpleName()).append('[');
+		}
 
-		return format("@%s(%s)", annotationClass.getName(), valuesToString);
+		// Slots are ordered by name, to have deterministic toString(). Useful at least for tests, if not for humans.
+		boolean first = true;
+		for (int slot = 0; slot < schema.size(); slot++) {
+			AnnotationValue value = valueAt(slot);
+			if (value != null) {
+				if (!first) {
+					builder.append(", ");
+				}
+				builder.append(schema.name(slot)).append('=').append(value.valueToString());
+				first = false;
+			}
+		}
+		return builder.append(isAnnotation ? ')' : ']').toString();
 	}
 
-	Class<A> annotationTypeImpl() {
-		return annotationClass;
+	/**
+	 * Implements {@link SerializableProxy#writeReplace()}, see {@link SerializedAnnotation}.
+	 */
+	Object writeReplaceImpl() {
+		Object[] slotValues = new Object[schema.size()];
+		for (int index = 0; index < explicitSlots.length; index++) {
+			// not copied, serialization only reads it
+			slotValues[explicitSlots[index]] = explicitValues[index].storedValue();
+		}
+		return new SerializedAnnotation(annotationClass, slotValues, completeness);
+	}
+
+	Class<? extends Annotation> annotationTypeImpl() {
+		// invoked on annotations only
+		return annotationClass.asSubclass(Annotation.class);
 	}
 
 	Object valueFor(Method method) {
-		AnnotationValue boundValue = values.get(method.getName());
+		// the only method of single-slot type needs no lookup
+		AnnotationValue boundValue = valueAt(schema.size() == 1 ? 0 : schema.slotOf(method.getName()));
 		if (boundValue != null) {
 			return boundValue.getValue();
 		} else {
 			return completeness.valueWhenMissing();
 		}
 	}
-
-	private static <K, V> Entry<K, V> entry(K key, V value) {
-		return new AbstractMap.SimpleEntry<>(key, value);
-	}
 }
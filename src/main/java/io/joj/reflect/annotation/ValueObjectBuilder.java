@@ -0,0 +1,109 @@
+package io.joj.reflect.annotation;
+
+import static io.joj.reflect.annotation.SyntheticAnnotationCompleteness.REQUIRE_COMPLETE;
+import static java.util.Objects.requireNonNull;
+
+import java.util.Map;
+
+import org.pcollections.HashPMap;
+import org.pcollections.IntTreePMap;
+import org.pcollections.PMap;
+
+import io.joj.reflect.MethodReference0;
+import io.joj.reflect.MethodReferences;
+import io.joj.reflect.annotation.internal.Proxies;
+
+/**
+ * Synthesizes immutable implementations of value interfaces, i.e. interfaces declaring (or inheriting) getters only,
+ * e.g. configuration or keys. Implementations share machinery with synthetic annotations (see
+ * {@link AnnotationBuilder}): values are validated, stored in slots and copied on return (arrays), {@code hashCode} is
+ * computed once, and {@code equals} compares stored values directly.
+ * <p>
+ * Example:
+ *
+ * <pre>
+ * <code>
+ * interface CacheKey {
+ *   String region();
+ *   int shard();
+ * }
+ *
+ * CacheKey key = ValueObjectBuilder.builderFor(CacheKey.class)
+ *   .with(CacheKey::region).returning("eu")
+ *   .with(CacheKey::shard).returning(3)
+ *   .build();
+ * </code>
+ * </pre>
+ *
+ * Unlike with annotations, values can be of any type, but cannot be {@code null}, and should be immutable. Two values
+ * of the same interface are equal when values of all their getters are equal; {@link Object#hashCode()} follows
+ * {@link java.lang.annotation.Annotation#hashCode()} contract. Default methods are not supported.
+ *
+ * @author findepi
+ */
+public final class ValueObjectBuilder {
+	private ValueObjectBuilder() {
+	}
+
+	/**
+	 * Low level, type-unsafe, value object synthesizer. Whenever possible, use {@link #builderFor(Class)} instead.
+	 *
+	 * @param valueInterface
+	 *            desired value interface
+	 * @param values
+	 *            map from getter name to value
+	 */
+	public static <T> T buildFromMap(Class<T> valueInterface, Map<String, ?> values) {
+		AnnotationSchema<T> schema = AnnotationSchema.ofValueType(valueInterface);
+		return buildFromSlots(schema,
+				SyntheticAnnotationInvocationHandler.toSlots(schema, requireNonNull(values, "values")));
+	}
+
+	/**
+	 * Value object synthesizer taking values indexed by {@link AnnotationSchema} slots.
+	 */
+	static <T> T buildFromSlots(AnnotationSchema<T> schema, Object[] slotValues) {
+		return Proxies.newSerializableProxyInstance(schema.annotationClass(),
+				new SyntheticAnnotationInvocationHandler<>(schema, slotValues, REQUIRE_COMPLETE));
+	}
+
+	/**
+	 * Returns type-safe, reusable (functional) builder for {@code T}.
+	 */
+	public static <T> Builder<T> builderFor(Class<T> valueInterface) {
+		// validate
+		AnnotationSchema.ofValueType(valueInterface);
+		return new Builder<>(valueInterface, HashPMap.empty(IntTreePMap.empty()));
+	}
+
+	public static final class Builder<T> {
+		private final Class<T> clazz;
+		private final PMap<String, Object> values;
+
+		private Builder(Class<T> clazz, PMap<String, Object> values) {
+			this.clazz = requireNonNull(clazz, "clazz");
+			this.values = requireNonNull(values, "values");
+		}
+
+		public <R> OngoingMethodSpec<R> with(MethodReference0<T> methodReference) {
+			String specedMethodName = MethodReferences.getMethod(clazz, methodReference).getName();
+			return new OngoingMethodSpec<>(specedMethodName);
+		}
+
+		public T build() {
+			return buildFromMap(clazz, values);
+		}
+
+		public final class OngoingMethodSpec<R> {
+			private final String specedMethodName;
+
+			private OngoingMethodSpec(String specedMethodName) {
+				this.specedMethodName = requireNonNull(specedMethodName, "specedMethodName");
+			}
+
+			public Builder<T> returning(R value) {
+				return new Builder<>(clazz, values.plus(specedMethodName, value));
+			}
+		}
+	}
+}
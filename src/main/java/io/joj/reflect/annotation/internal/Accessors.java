@@ -0,0 +1,38 @@
+package io.joj.reflect.annotation.internal;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+
+/**
+ * Creates {@link MethodHandle}s for annotation getters, including getters of non-public annotation types.
+ * <p>
+ * This is Java 8 version, which falls back to {@link Method#setAccessible(boolean)}. Java 9+ runtimes use the version
+ * from multi-release JAR, which uses {@code MethodHandles.privateLookupIn} instead.
+ *
+ * @author findepi
+ */
+public final class Accessors {
+	private Accessors() {
+	}
+
+	/**
+	 * @return handle of type {@code (Object)Object}, invoking {@code getter} on its argument
+	 */
+	public static MethodHandle getter(Method getter) {
+		MethodHandle handle;
+		try {
+			handle = MethodHandles.publicLookup().unreflect(getter);
+		} catch (IllegalAccessException publicAccessException) {
+			getter.setAccessible(true);
+			try {
+				handle = MethodHandles.lookup().unreflect(getter);
+			} catch (IllegalAccessException e) {
+				e.addSuppressed(publicAccessException);
+				throw new IllegalStateException(e);
+			}
+		}
+		return handle.asType(MethodType.methodType(Object.class, Object.class));
+	}
+}
@@ -0,0 +1,32 @@
+package io.joj.reflect.annotation.internal;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * @author findepi
+ */
+public final class Classes {
+	private Classes() {
+	}
+
+	/**
+	 * Resolves class by binary name, not initializing it, with the thread context class loader first, so that
+	 * application classes resolve also for annotation types of libraries or the platform, and then with
+	 * {@code fallbackLoader}. The context class loader is read on every call, not retained.
+	 *
+	 * @param fallbackLoader
+	 *            usually annotation type's class loader, {@code null} for the bootstrap one
+	 */
+	public static Class<?> forName(String name, ClassLoader fallbackLoader) throws ClassNotFoundException {
+		requireNonNull(name, "name");
+		ClassLoader contextLoader = Thread.currentThread().getContextClassLoader();
+		if (contextLoader != null && contextLoader != fallbackLoader) {
+			try {
+				return Class.forName(name, false, contextLoader);
+			} catch (ClassNotFoundException e) {
+				// try fallbackLoader
+			}
+		}
+		return Class.forName(name, false, fallbackLoader);
+	}
+}
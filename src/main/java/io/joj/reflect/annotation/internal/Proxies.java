@@ -0,0 +1,193 @@
+package io.joj.reflect.annotation.internal;
+
+import static io.joj.reflect.annotation.internal.Check.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import io.joj.reflect.cache.Caches;
+import io.joj.reflect.cache.ClassKeyedCache;
+import io.joj.reflect.metrics.Metrics;
+
+/**
+ * Creates {@link Proxy} instances implementing single interface, like {@link Proxy#newProxyInstance}, but with proxy
+ * constructors cached per interface and class loader.
+ * <p>
+ * Proxy class is defined in the thread context class loader, as long as it can see the interface. Otherwise (including
+ * when there is no context class loader), it is defined in the interface's own class loader.
+ * <p>
+ * Caches (see {@link Caches}) do not prevent class loaders from being garbage collected: per-interface state is
+ * attached to the interface, class loaders are referenced weakly, and constructors are attached to proxy classes.
+ * <p>
+ * Serializable proxies (see {@link #newSerializableProxyInstance}) additionally implement {@link SerializableProxy}.
+ * When the interface's class loader cannot see {@link SerializableProxy} (e.g. for interfaces of the platform), their
+ * proxy class is defined in the class loader of {@link SerializableProxy} instead.
+ *
+ * @author findepi
+ */
+public final class Proxies {
+	private Proxies() {
+	}
+
+	private static final InvocationHandler unsupported = (proxy, method, args) -> {
+		throw new UnsupportedOperationException();
+	};
+
+	private static final ClassKeyedCache<PerInterface> perInterface = Caches.newClassKeyedCache("proxy-classes",
+			type -> new PerInterface(new Class<?>[] { type }));
+
+	private static final ClassKeyedCache<PerInterface> perSerializableInterface = Caches.newClassKeyedCache(
+			"serializable-proxy-classes", type -> new PerInterface(new Class<?>[] { type, SerializableProxy.class }));
+
+	private static final ClassKeyedCache<Constructor<?>> constructors = Caches.newClassKeyedCache(
+			"proxy-constructors", Proxies::findConstructor);
+
+	private static Constructor<?> findConstructor(Class<?> proxyClass) {
+		Constructor<?> constructor;
+		try {
+			constructor = proxyClass.getConstructor(InvocationHandler.class);
+			if (!Modifier.isPublic(proxyClass.getModifiers())) {
+				// Proxy class for non-public interface is non-public, as Proxy.newProxyInstance does.
+				constructor.setAccessible(true);
+			}
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			// e.g. setAccessible not permitted, fall back to Proxy.newProxyInstance
+			return null;
+		}
+		return constructor;
+	}
+
+	public static <T> T newProxyInstance(Class<T> iface, InvocationHandler handler) {
+		return newProxyInstance(perInterface, iface, handler, Thread.currentThread().getContextClassLoader());
+	}
+
+	/**
+	 * Like {@link #newProxyInstance}, but the proxy also implements {@link SerializableProxy}, so {@code handler} must
+	 * handle {@link SerializableProxy#writeReplace()}.
+	 */
+	public static <T> T newSerializableProxyInstance(Class<T> iface, InvocationHandler handler) {
+		return newSerializableProxyInstance(iface, handler, Thread.currentThread().getContextClassLoader());
+	}
+
+	/**
+	 * Like {@link #newSerializableProxyInstance(Class, InvocationHandler)}, with {@code loader} used instead of the
+	 * thread context class loader; {@code null} for the interface's own class loader.
+	 */
+	public static <T> T newSerializableProxyInstance(Class<T> iface, InvocationHandler handler, ClassLoader loader) {
+		return newProxyInstance(perSerializableInterface, iface, handler, loader);
+	}
+
+	private static <T> T newProxyInstance(ClassKeyedCache<PerInterface> cache, Class<T> iface, InvocationHandler handler,
+			ClassLoader loader) {
+
+		requireNonNull(handler, "handler");
+		Class<?> proxyClass = cache.get(requireNonNull(iface, "iface")).proxyClass(loader);
+
+		Constructor<?> constructor = constructors.get(proxyClass);
+		if (constructor == null) {
+			return iface.cast(Proxy.newProxyInstance(proxyClass.getClassLoader(), proxyClass.getInterfaces(), handler));
+		}
+
+		try {
+			return iface.cast(constructor.newInstance(handler));
+		} catch (InvocationTargetException e) {
+			throw new IllegalStateException(e.getCause());
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Eagerly creates, and initializes, proxy class for {@code iface}, as {@link #newProxyInstance} would for the
+	 * current thread.
+	 */
+	public static void prepare(Class<?> iface) {
+		newProxyInstance(iface, unsupported);
+	}
+
+	/**
+	 * Like {@link #prepare}, for {@link #newSerializableProxyInstance}.
+	 */
+	public static void prepareSerializable(Class<?> iface) {
+		newSerializableProxyInstance(iface, unsupported);
+	}
+
+	private static final class PerInterface {
+		// the interface being implemented, followed by additional ones
+		private final Class<?>[] interfaces;
+		// The interface references its own class loader anyway
+		private final ClassLoader ownLoader;
+		private volatile Class<?> ownLoaderProxyClass;
+		private final Map<ClassLoader, WeakReference<Class<?>>> otherLoadersProxyClasses = Collections
+				.synchronizedMap(new WeakHashMap<>());
+
+		PerInterface(Class<?>[] interfaces) {
+			checkArgument(interfaces[0].isInterface(), "%s is not an interface", interfaces[0]);
+			this.interfaces = interfaces;
+			this.ownLoader = ownLoader(interfaces);
+		}
+
+		/**
+		 * @return class loader of the first of interfaces, which sees all of them
+		 */
+		private static ClassLoader ownLoader(Class<?>[] interfaces) {
+			for (Class<?> candidate : interfaces) {
+				if (isVisible(interfaces, candidate.getClassLoader())) {
+					return candidate.getClassLoader();
+				}
+			}
+			// let Proxy report the problem
+			return interfaces[0].getClassLoader();
+		}
+
+		Class<?> proxyClass(ClassLoader loader) {
+			if (loader == null || loader == ownLoader) {
+				return ownLoaderProxyClass();
+			}
+
+			WeakReference<Class<?>> cached = otherLoadersProxyClasses.get(loader);
+			Class<?> proxyClass = cached != null ? cached.get() : null;
+			if (proxyClass == null) {
+				// When defined in loader, the proxy class lives (at least) as long as the loader.
+				proxyClass = isVisible(interfaces, loader) ? createProxyClass(loader) : ownLoaderProxyClass();
+				otherLoadersProxyClasses.put(loader, new WeakReference<>(proxyClass));
+			}
+			return proxyClass;
+		}
+
+		private Class<?> ownLoaderProxyClass() {
+			Class<?> proxyClass = ownLoaderProxyClass;
+			if (proxyClass == null) {
+				proxyClass = createProxyClass(ownLoader);
+				ownLoaderProxyClass = proxyClass;
+			}
+			return proxyClass;
+		}
+
+		private Class<?> createProxyClass(ClassLoader loader) {
+			Metrics.current().implementationClassCreated(interfaces[0]);
+			return Proxy.newProxyInstance(loader, interfaces, unsupported).getClass();
+		}
+
+		private static boolean isVisible(Class<?>[] types, ClassLoader loader) {
+			for (Class<?> type : types) {
+				try {
+					if (Class.forName(type.getName(), false, loader) != type) {
+						return false;
+					}
+				} catch (ClassNotFoundException e) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package io.joj.reflect.annotation.internal;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+
+/**
+ * Additionally implemented by proxies created with {@link Proxies#newSerializableProxyInstance}, so that they are
+ * serialized in a form provided by their invocation handler, rather than with the handler. Not meant to be used
+ * directly.
+ *
+ * @author findepi
+ */
+public interface SerializableProxy extends Serializable {
+
+	/**
+	 * Invoked by serialization, handled by the proxy's invocation handler.
+	 *
+	 * @return object to serialize in place of the proxy
+	 */
+	Object writeReplace() throws ObjectStreamException;
+}
@@ -0,0 +1,590 @@
+package io.joj.reflect.annotation.processing;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.joining;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.SimpleAnnotationValueVisitor8;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import io.joj.reflect.annotation.GeneratedAnnotationFactory;
+import io.joj.reflect.annotation.GeneratedAnnotations;
+
+/**
+ * Generates, for annotation types listed in {@link GenerateAnnotationImplementations}, a concrete implementation class
+ * ({@code <Annotation>Impl}) and a typed, reusable builder ({@code <Annotation>Builder}). Generated implementations
+ * conform to the same {@link java.lang.annotation.Annotation#hashCode()}, {@link Object#equals(Object)} and
+ * {@link Object#toString()} contract as synthetic annotations produced by
+ * {@link io.joj.reflect.annotation.AnnotationBuilder}, are serialized in the same form, and are registered as {@link GeneratedAnnotationFactory}
+ * services, so that {@link io.joj.reflect.annotation.AnnotationBuilder} uses them when available.
+ *
+ * @author findepi
+ */
+@SupportedAnnotationTypes("io.joj.reflect.annotation.processing.GenerateAnnotationImplementations")
+public class AnnotationImplementationProcessor extends AbstractProcessor {
+
+	private static final String SERVICE_FILE = "META-INF/services/" + GeneratedAnnotationFactory.class.getName();
+
+	private Elements elements;
+	private Types types;
+	private Filer filer;
+
+	// package and annotation type pairs already generated
+	private final Set<String> generated = new HashSet<>();
+	// binary names of generated factories
+	private final Set<String> factories = new TreeSet<>();
+
+	@Override
+	public synchronized void init(ProcessingEnvironment processingEnv) {
+		super.init(processingEnv);
+		this.elements = processingEnv.getElementUtils();
+		this.types = processingEnv.getTypeUtils();
+		this.filer = processingEnv.getFiler();
+	}
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		if (roundEnv.processingOver()) {
+			writeServiceFile();
+			return false;
+		}
+
+		for (Element element : roundEnv.getElementsAnnotatedWith(GenerateAnnotationImplementations.class)) {
+			PackageElement packageElement = elements.getPackageOf(element);
+			for (TypeElement annotationType : requestedTypes(element)) {
+				if (annotationType.getKind() != ElementKind.ANNOTATION_TYPE) {
+					error(element, "%s is not an annotation type", annotationType);
+					continue;
+				}
+				if (!isAccessibleFrom(annotationType, packageElement)) {
+					error(element, "%s is not accessible from package %s", annotationType, packageElement);
+					continue;
+				}
+				if (!generated.add(packageElement.getQualifiedName() + ":" + annotationType.getQualifiedName())) {
+					continue;
+				}
+
+				try {
+					generate(element, packageElement, annotationType);
+				} catch (IOException e) {
+					error(element, "Failed to generate implementation of %s: %s", annotationType, e);
+				}
+			}
+		}
+		return true;
+	}
+
+	private List<TypeElement> requestedTypes(Element element) {
+		List<TypeElement> requested = new ArrayList<>();
+		for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+			TypeElement mirrorType = (TypeElement) mirror.getAnnotationType().asElement();
+			if (!mirrorType.getQualifiedName().contentEquals(GenerateAnnotationImplementations.class.getName())) {
+				continue;
+			}
+			for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mirror.getElementValues()
+					.entrySet()) {
+				@SuppressWarnings("unchecked") // value() is an array
+				List<? extends AnnotationValue> values = (List<? extends AnnotationValue>) entry.getValue().getValue();
+				for (AnnotationValue value : values) {
+					requested.add((TypeElement) ((DeclaredType) value.getValue()).asElement());
+				}
+			}
+		}
+		return requested;
+	}
+
+	private boolean isAccessibleFrom(TypeElement type, PackageElement packageElement) {
+		boolean samePackage = elements.getPackageOf(type).equals(packageElement);
+		for (Element e = type; e instanceof TypeElement; e = e.getEnclosingElement()) {
+			if (e.getModifiers().contains(Modifier.PRIVATE)) {
+				return false;
+			}
+			if (!samePackage && !e.getModifiers().contains(Modifier.PUBLIC)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void generate(Element origin, PackageElement packageElement, TypeElement annotationType)
+			throws IOException {
+
+		String packageName = packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+		String baseName = flatName(annotationType);
+		String implName = baseName + "Impl";
+		String builderName = baseName + "Builder";
+
+		List<Attribute> attributes = new ArrayList<>();
+		for (ExecutableElement method : ElementFilter.methodsIn(annotationType.getEnclosedElements())) {
+			if (!method.getModifiers().contains(Modifier.STATIC)) {
+				attributes.add(new Attribute(method));
+			}
+		}
+		attributes.sort(Comparator.comparing(attribute -> attribute.name));
+
+		String annotation = annotationType.getQualifiedName().toString();
+		write(origin, packageName, implName, new ImplementationSource(annotation, implName, attributes).toString());
+		write(origin, packageName, builderName,
+				new BuilderSource(annotation, implName, builderName, attributes).toString());
+
+		factories.add((packageName.isEmpty() ? "" : packageName + ".") + implName + "$Factory");
+	}
+
+	private static String flatName(TypeElement type) {
+		List<String> names = new ArrayList<>();
+		for (Element e = type; e instanceof TypeElement; e = e.getEnclosingElement()) {
+			names.add(e.getSimpleName().toString());
+		}
+		Collections.reverse(names);
+		return String.join("_", names);
+	}
+
+	private void write(Element origin, String packageName, String simpleName, String source) throws IOException {
+		String qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+		try (Writer writer = filer.createSourceFile(qualifiedName, origin).openWriter()) {
+			if (!packageName.isEmpty()) {
+				writer.write("package " + packageName + ";\n\n");
+			}
+			writer.write(source);
+		}
+	}
+
+	private void writeServiceFile() {
+		if (factories.isEmpty()) {
+			return;
+		}
+
+		Set<String> allFactories = new TreeSet<>(factories);
+		try {
+			// Merge with registrations from previous (e.g. incremental) compilation
+			FileObject existing = filer.getResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE);
+			try (BufferedReader reader = new BufferedReader(new InputStreamReader(existing.openInputStream(), UTF_8))) {
+				reader.lines()
+						.map(String::trim)
+						.filter(line -> !line.isEmpty() && !line.startsWith("#"))
+						.forEach(allFactories::add);
+			}
+		} catch (IOException e) {
+			// no existing file
+		}
+
+		try {
+			FileObject serviceFile = filer.createResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE);
+			try (Writer writer = serviceFile.openWriter()) {
+				for (String factory : allFactories) {
+					writer.write(factory);
+					writer.write("\n");
+				}
+			}
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+					format("Failed to write %s: %s", SERVICE_FILE, e));
+		}
+	}
+
+	private void error(Element element, String messageFormat, Object... args) {
+		processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, format(messageFormat, args), element);
+	}
+
+	/**
+	 * Annotation method, with everything needed to generate code for it.
+	 */
+	private final class Attribute {
+		final String name;
+		final TypeMirror type;
+		// source of the type, boxed for primitives
+		final String boxedType;
+		// expression evaluating to default value, or null
+		final String defaultValue;
+
+		Attribute(ExecutableElement method) {
+			this.name = method.getSimpleName().toString();
+			this.type = method.getReturnType();
+			this.boxedType = type.getKind().isPrimitive()
+					? types.boxedClass(types.getPrimitiveType(type.getKind())).getQualifiedName().toString()
+					: type.toString();
+			this.defaultValue = method.getDefaultValue() == null ? null
+					: defaultValueSource(method.getDefaultValue(), type, name);
+		}
+
+		boolean isArray() {
+			return type.getKind() == TypeKind.ARRAY;
+		}
+
+		String typeSource() {
+			return type.toString();
+		}
+
+		/**
+		 * Class literal for run-time type check, wrapper for primitives.
+		 */
+		String checkedClassLiteral() {
+			return (type.getKind().isPrimitive() ? boxedType : types.erasure(type).toString()) + ".class";
+		}
+
+		String defaultConstant() {
+			return "DEFAULT_" + name;
+		}
+
+		String hashCodeValue(String value) {
+			if (type.getKind().isPrimitive()) {
+				return boxedType + ".hashCode(" + value + ")";
+			} else if (isArray()) {
+				return "java.util.Arrays.hashCode(" + value + ")";
+			} else {
+				return value + ".hashCode()";
+			}
+		}
+
+		String isValueEqual(String value, String other) {
+			switch (type.getKind()) {
+			case FLOAT:
+				return "java.lang.Float.floatToIntBits(" + value + ") == java.lang.Float.floatToIntBits(" + other + ")";
+			case DOUBLE:
+				return "java.lang.Double.doubleToLongBits(" + value + ") == java.lang.Double.doubleToLongBits("
+						+ other + ")";
+			case ARRAY:
+				return "java.util.Arrays.equals(" + value + ", " + other + ")";
+			default:
+				return type.getKind().isPrimitive()
+						? value + " == " + other
+						: value + ".equals(" + other + ")";
+			}
+		}
+
+		String valueToString(String value) {
+			return isArray()
+					? "java.util.Arrays.toString(" + value + ")"
+					: "java.lang.String.valueOf(" + value + ")";
+		}
+	}
+
+	/**
+	 * @return Java expression evaluating to {@code value} of {@code type}
+	 */
+	private String defaultValueSource(AnnotationValue value, TypeMirror type, String name) {
+		String literal = value.accept(new SimpleAnnotationValueVisitor8<String, TypeMirror>() {
+			@Override
+			protected String defaultAction(Object constant, TypeMirror type) {
+				// primitives and strings
+				return elements.getConstantExpression(constant);
+			}
+
+			@Override
+			public String visitType(TypeMirror t, TypeMirror type) {
+				return types.erasure(t) + ".class";
+			}
+
+			@Override
+			public String visitEnumConstant(VariableElement c, TypeMirror type) {
+				return ((TypeElement) c.getEnclosingElement()).getQualifiedName() + "." + c.getSimpleName();
+			}
+
+			@Override
+			public String visitAnnotation(AnnotationMirror a, TypeMirror type) {
+				return null;
+			}
+
+			@Override
+			public String visitArray(List<? extends AnnotationValue> values, TypeMirror type) {
+				TypeMirror componentType = ((ArrayType) type).getComponentType();
+				List<String> elementSources = new ArrayList<>();
+				for (AnnotationValue element : values) {
+					String elementSource = element.accept(this, componentType);
+					if (elementSource == null) {
+						return null;
+					}
+					elementSources.add(elementSource);
+				}
+				return "new " + types.erasure(type) + " { " + String.join(", ", elementSources) + " }";
+			}
+		}, type);
+
+		if (literal == null) {
+			// nested annotations, cannot be expressed in source
+			return format("%s.defaultValue(ANNOTATION_TYPE, \"%s\", %s.class)", GeneratedAnnotations.class.getName(),
+					name, types.erasure(type));
+		}
+		return literal;
+	}
+
+	private static final class ImplementationSource {
+		private final String annotation;
+		private final String implName;
+		private final List<Attribute> attributes;
+		private final StringBuilder out = new StringBuilder();
+
+		ImplementationSource(String annotation, String implName, List<Attribute> attributes) {
+			this.annotation = annotation;
+			this.implName = implName;
+			this.attributes = attributes;
+		}
+
+		@Override
+		public String toString() {
+			line("/**");
+			line(" * Implementation of {@link %s}, generated by {@link %s}.", annotation,
+					AnnotationImplementationProcessor.class.getName());
+			line(" */");
+			line("public final class %s implements %s, java.io.Serializable {", implName, annotation);
+			line("");
+			line("	private static final long serialVersionUID = 1L;");
+			line("");
+			for (Attribute attribute : attributes) {
+				line("	private final %s %s;", attribute.typeSource(), attribute.name);
+			}
+			line("	private int hashCode;");
+			line("");
+
+			// constructor
+			line("	%s(%s) {", implName, attributes.stream()
+					.map(attribute -> attribute.typeSource() + " " + attribute.name)
+					.collect(joining(", ")));
+			for (Attribute attribute : attributes) {
+				if (attribute.type.getKind().isPrimitive()) {
+					line("		this.%s = %s;", attribute.name, attribute.name);
+				} else {
+					line("		this.%s = java.util.Objects.requireNonNull(%s, \"%s\")%s;", attribute.name, attribute.name,
+							attribute.name, attribute.isArray() ? ".clone()" : "");
+				}
+			}
+			line("	}");
+
+			// getters
+			for (Attribute attribute : attributes) {
+				line("");
+				line("	@Override");
+				line("	public %s %s() {", attribute.typeSource(), attribute.name);
+				line("		return this.%s%s;", attribute.name, attribute.isArray() ? ".clone()" : "");
+				line("	}");
+			}
+
+			line("");
+			line("	@Override");
+			line("	public java.lang.Class<? extends java.lang.annotation.Annotation> annotationType() {");
+			line("		return %s.class;", annotation);
+			line("	}");
+
+			line("");
+			line("	@Override");
+			line("	public int hashCode() {");
+			line("		int hashCode = this.hashCode;");
+			line("		if (hashCode == 0) {");
+			line("			hashCode = 0%s;", attributes.stream()
+					.map(attribute -> format("\n					+ ((127 * \"%s\".hashCode()) ^ %s)", attribute.name,
+							attribute.hashCodeValue("this." + attribute.name)))
+					.collect(joining()));
+			line("			this.hashCode = hashCode;");
+			line("		}");
+			line("		return hashCode;");
+			line("	}");
+
+			line("");
+			line("	@Override");
+			line("	public boolean equals(java.lang.Object o) {");
+			line("		if (o == this) {");
+			line("			return true;");
+			line("		}");
+			line("		if (o instanceof %s) {", implName);
+			line("			%s that = (%s) o;", implName, implName);
+			line("			return this.hashCode() == that.hashCode()%s;", attributes.stream()
+					.map(attribute -> "\n					&& "
+							+ attribute.isValueEqual("this." + attribute.name, "that." + attribute.name))
+					.collect(joining()));
+			line("		}");
+			line("		if (!(o instanceof %s)) {", annotation);
+			line("			return false;");
+			line("		}");
+			line("		%s that = (%s) o;", annotation, annotation);
+			line("		return true%s;", attributes.stream()
+					.map(attribute -> "\n				&& "
+							+ attribute.isValueEqual("this." + attribute.name, "that." + attribute.name + "()"))
+					.collect(joining()));
+			line("	}");
+
+			line("");
+			line("	@Override");
+			line("	public java.lang.String toString() {");
+			line("		return \"@\" + %s.class.getName() + \"(\" +", annotation);
+			for (int i = 0; i < attributes.size(); i++) {
+				Attribute attribute = attributes.get(i);
+				line("				\"%s%s=\" + %s +", i == 0 ? "" : ", ", attribute.name,
+						attribute.valueToString("this." + attribute.name));
+			}
+			line("				\")\";");
+			line("	}");
+
+			// serialized the same way as synthetic annotations
+			line("");
+			line("	private java.lang.Object writeReplace() {");
+			line("		return %s.serializedForm(%s.class%s);", GeneratedAnnotations.class.getName(), annotation,
+					attributes.stream()
+							.map(attribute -> ", this." + attribute.name)
+							.collect(joining()));
+			line("	}");
+
+			// factory
+			line("");
+			line("	/**");
+			line("	 * Registered as a service, used by {@link io.joj.reflect.annotation.AnnotationBuilder}.");
+			line("	 */");
+			line("	public static final class Factory implements %s<%s> {", GeneratedAnnotationFactory.class.getName(),
+					annotation);
+			line("");
+			line("		private static final java.lang.Class<%s> ANNOTATION_TYPE = %s.class;", annotation, annotation);
+			line("		private static final java.lang.String[] NAMES = { %s };", attributes.stream()
+					.map(attribute -> "\"" + attribute.name + "\"")
+					.collect(joining(", ")));
+			for (Attribute attribute : attributes) {
+				if (attribute.defaultValue != null) {
+					line("		static final %s %s = %s;", attribute.boxedType, attribute.defaultConstant(),
+							attribute.defaultValue);
+				}
+			}
+			line("");
+			line("		@Override");
+			line("		public java.lang.Class<%s> annotationType() {", annotation);
+			line("			return ANNOTATION_TYPE;");
+			line("		}");
+			line("");
+			line("		@Override");
+			line("		@SuppressWarnings(\"unchecked\")");
+			line("		public %s create(java.util.Map<java.lang.String, ?> values) {", annotation);
+			line("			%s.checkAllMapped(values, ANNOTATION_TYPE, NAMES);", GeneratedAnnotations.class.getName());
+			line("			return new %s(%s);", implName, attributes.stream()
+					.map(attribute -> format("\n					%s.value(values, ANNOTATION_TYPE, \"%s\", %s, %s)",
+							GeneratedAnnotations.class.getName(), attribute.name, attribute.checkedClassLiteral(),
+							attribute.defaultValue != null ? attribute.defaultConstant() : "null"))
+					.collect(joining(",")));
+			line("		}");
+			line("	}");
+			line("}");
+			return out.toString();
+		}
+
+		private void line(String lineFormat, Object... args) {
+			out.append(format(lineFormat, args)).append('\n');
+		}
+	}
+
+	private static final class BuilderSource {
+		private final String annotation;
+		private final String implName;
+		private final String builderName;
+		private final List<Attribute> attributes;
+		private final StringBuilder out = new StringBuilder();
+
+		BuilderSource(String annotation, String implName, String builderName, List<Attribute> attributes) {
+			this.annotation = annotation;
+			this.implName = implName;
+			this.builderName = builderName;
+			this.attributes = attributes;
+		}
+
+		@Override
+		public String toString() {
+			line("/**");
+			line(" * Type-safe, reusable (functional) builder for {@link %s}, generated by {@link %s}.", annotation,
+					AnnotationImplementationProcessor.class.getName());
+			line(" */");
+			line("public final class %s {", builderName);
+			line("");
+			for (Attribute attribute : attributes) {
+				line("	private final %s %s;", attribute.boxedType, attribute.name);
+			}
+			line("");
+			line("	private %s(%s) {", builderName, attributes.stream()
+					.map(attribute -> attribute.boxedType + " " + attribute.name)
+					.collect(joining(", ")));
+			for (Attribute attribute : attributes) {
+				line("		this.%s = %s;", attribute.name, attribute.name);
+			}
+			line("	}");
+			line("");
+			line("	public static %s builder() {", builderName);
+			line("		return new %s(%s);", builderName, attributes.stream()
+					.map(attribute -> "null")
+					.collect(joining(", ")));
+			line("	}");
+
+			for (Attribute attribute : attributes) {
+				line("");
+				line("	public %s %s(%s %s) {", builderName, attribute.name, attribute.typeSource(), attribute.name);
+				String value = attribute.type.getKind().isPrimitive()
+						? attribute.name
+						: format("java.util.Objects.requireNonNull(%s, \"%s\")%s", attribute.name, attribute.name,
+								attribute.isArray() ? ".clone()" : "");
+				line("		return new %s(%s);", builderName, attributes.stream()
+						.map(other -> other == attribute ? value : "this." + other.name)
+						.collect(joining(", ")));
+				line("	}");
+			}
+
+			line("");
+			line("	public %s build() {", annotation);
+			line("		return new %s(%s);", implName, attributes.stream()
+					.map(attribute -> attribute.defaultValue != null
+							? format("\n				this.%s != null ? this.%s : %s.Factory.%s", attribute.name,
+									attribute.name, implName, attribute.defaultConstant())
+							: format("\n				required(this.%s, \"%s\")", attribute.name, attribute.name))
+					.collect(joining(",")));
+			line("	}");
+			line("");
+			line("	private static <T> T required(T value, java.lang.String name) {");
+			line("		if (value == null) {");
+			line("			throw new java.lang.IllegalArgumentException(");
+			line("					\"no value for \" + %s.class.getName() + \".\" + name + \"()\");", annotation);
+			line("		}");
+			line("		return value;");
+			line("	}");
+			line("}");
+			return out.toString();
+		}
+
+		private void line(String lineFormat, Object... args) {
+			out.append(format(lineFormat, args)).append('\n');
+		}
+	}
+}
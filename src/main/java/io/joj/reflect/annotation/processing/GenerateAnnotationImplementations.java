@@ -0,0 +1,32 @@
+package io.joj.reflect.annotation.processing;
+
+import java.lang.annotation.Annotation;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Requests compile-time generation of implementation and builder for listed annotation types. Generated classes are
+ * placed in the package of the annotated element.
+ * <p>
+ * Example:
+ *
+ * <pre>
+ * <code>
+ * &#64;GenerateAnnotationImplementations(Named.class)
+ * class Bindings {
+ *   Named qualifier = NamedBuilder.builder().value("x").build();
+ * }
+ * </code>
+ * </pre>
+ *
+ * @author findepi
+ * @see AnnotationImplementationProcessor
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target({ ElementType.TYPE, ElementType.PACKAGE })
+public @interface GenerateAnnotationImplementations {
+
+	Class<? extends Annotation>[] value();
+}
@@ -0,0 +1,81 @@
+package io.joj.reflect.cache;
+
+import static io.joj.reflect.annotation.internal.Check.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One of the caches of this library, registered in {@link Caches}. Caches can be cleared, bounded, and inspected at
+ * any time; they do not affect results, only the cost of obtaining them.
+ *
+ * @author findepi
+ */
+public abstract class Cache {
+
+	static final long UNBOUNDED = Long.MAX_VALUE;
+
+	private final String name;
+	private volatile long maximumSize;
+
+	final LongAdder requests = new LongAdder();
+	final LongAdder misses = new LongAdder();
+	final LongAdder evictions = new LongAdder();
+
+	Cache(String name, long maximumSize) {
+		this.name = requireNonNull(name, "name");
+		checkMaximumSize(maximumSize);
+		this.maximumSize = maximumSize;
+	}
+
+	public final String name() {
+		return name;
+	}
+
+	/**
+	 * @return maximum number of entries, {@link Long#MAX_VALUE} if unbounded
+	 */
+	public final long maximumSize() {
+		return maximumSize;
+	}
+
+	/**
+	 * Bounds the cache, evicting entries over {@code maximumSize} (least recently used first, approximately).
+	 */
+	public final void setMaximumSize(long maximumSize) {
+		checkMaximumSize(maximumSize);
+		this.maximumSize = maximumSize;
+		trim();
+	}
+
+	private static void checkMaximumSize(long maximumSize) {
+		checkArgument(maximumSize > 0, "maximumSize must be positive, got %s", maximumSize);
+	}
+
+	/**
+	 * @return current number of entries, approximately
+	 */
+	public abstract long size();
+
+	/**
+	 * Discards all entries. Statistics are not reset.
+	 */
+	public abstract void clear();
+
+	public final CacheStats stats() {
+		long misses = this.misses.sum();
+		// requests are counted before misses, so that there are no more misses than requests
+		long hits = Math.max(0, requests.sum() - misses);
+		return new CacheStats(name, hits, misses, evictions.sum(), size());
+	}
+
+	/**
+	 * Evicts entries over the maximum size.
+	 */
+	abstract void trim();
+
+	@Override
+	public String toString() {
+		return stats().toString();
+	}
+}
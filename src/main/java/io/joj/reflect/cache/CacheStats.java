@@ -0,0 +1,58 @@
+package io.joj.reflect.cache;
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Snapshot of {@link Cache} statistics, counted since the cache was created.
+ *
+ * @author findepi
+ */
+public final class CacheStats {
+	private final String name;
+	private final long hitCount;
+	private final long missCount;
+	private final long evictionCount;
+	private final long size;
+
+	CacheStats(String name, long hitCount, long missCount, long evictionCount, long size) {
+		this.name = requireNonNull(name, "name");
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+		this.evictionCount = evictionCount;
+		this.size = size;
+	}
+
+	public String name() {
+		return name;
+	}
+
+	public long hitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * @return number of values computed (or, for interners, added)
+	 */
+	public long missCount() {
+		return missCount;
+	}
+
+	public long evictionCount() {
+		return evictionCount;
+	}
+
+	public long size() {
+		return size;
+	}
+
+	public double hitRate() {
+		long requests = hitCount + missCount;
+		return requests == 0 ? 1.0 : (double) hitCount / requests;
+	}
+
+	@Override
+	public String toString() {
+		return format("%s{hits=%s, misses=%s, evictions=%s, size=%s}", name, hitCount, missCount, evictionCount, size);
+	}
+}
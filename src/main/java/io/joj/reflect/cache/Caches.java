@@ -0,0 +1,124 @@
+package io.joj.reflect.cache;
+
+import static io.joj.reflect.annotation.internal.Check.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+
+/**
+ * Registry of all caches of this library, e.g. of annotation schemas, proxy classes, or interned annotations. All of
+ * them are safe for long running applications with class loaders being discarded (e.g. redeployments): a cached value
+ * strongly references only classes visible from its key's class loader, and other class loaders, or their classes,
+ * only weakly (see {@link ClassKeyedCache}).
+ * <p>
+ * Caches are unbounded by default, but each can be bounded, either with
+ * {@link Cache#setMaximumSize(long)}, or with a system property {@code io.joj.reflect.cache.<name>.maximumSize} read
+ * when the cache is created. Example:
+ *
+ * <pre>
+ * <code>
+ * Caches.named("interned-annotations").setMaximumSize(100_000);
+ * ...
+ * Caches.stats().values().forEach(System.out::println);
+ * </code>
+ * </pre>
+ *
+ * @author findepi
+ */
+public final class Caches {
+	private Caches() {
+	}
+
+	private static final ConcurrentMap<String, Cache> caches = new ConcurrentSkipListMap<>();
+
+	// Caches are created when their owners are initialized, which must happen before caches are listed.
+	private static final String[] OWNERS = {
+			"io.joj.reflect.MethodReferences",
+			"io.joj.reflect.annotation.AnnotationBuilder",
+			"io.joj.reflect.annotation.AnnotationCoercion",
+			"io.joj.reflect.annotation.AnnotationInterner",
+			"io.joj.reflect.annotation.AnnotationReader",
+			"io.joj.reflect.annotation.AnnotationSchema",
+			"io.joj.reflect.annotation.GeneratedAnnotations",
+			"io.joj.reflect.annotation.internal.Proxies",
+	};
+	private static volatile boolean ownersInitialized;
+
+	/**
+	 * Creates, and registers, cache of values computed by {@code loader}. Meant to be used by this library only.
+	 */
+	public static <V> ClassKeyedCache<V> newClassKeyedCache(String name, Function<Class<?>, ? extends V> loader) {
+		return register(new ClassKeyedCache<>(name, configuredMaximumSize(name), loader));
+	}
+
+	/**
+	 * Creates, and registers, interner. Meant to be used by this library only.
+	 */
+	public static <T> WeakInterner<T> newWeakInterner(String name) {
+		return register(new WeakInterner<>(name, configuredMaximumSize(name)));
+	}
+
+	private static long configuredMaximumSize(String name) {
+		return Long.getLong("io.joj.reflect.cache." + requireNonNull(name, "name") + ".maximumSize", Cache.UNBOUNDED);
+	}
+
+	private static <C extends Cache> C register(C cache) {
+		Cache previous = caches.putIfAbsent(cache.name(), cache);
+		checkArgument(previous == null, "Cache %s already exists", cache.name());
+		return cache;
+	}
+
+	private static void initializeOwners() {
+		if (ownersInitialized) {
+			return;
+		}
+		for (String owner : OWNERS) {
+			try {
+				Class.forName(owner, true, Caches.class.getClassLoader());
+			} catch (ClassNotFoundException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		ownersInitialized = true;
+	}
+
+	/**
+	 * @return all caches, ordered by name
+	 */
+	public static Collection<Cache> all() {
+		initializeOwners();
+		return Collections.unmodifiableList(new ArrayList<>(caches.values()));
+	}
+
+	public static Cache named(String name) {
+		initializeOwners();
+		Cache cache = caches.get(requireNonNull(name, "name"));
+		checkArgument(cache != null, "No cache %s, available caches: %s", name, caches.keySet());
+		return cache;
+	}
+
+	/**
+	 * Clears all caches, e.g. to release memory after a warm-up. Caches are repopulated on demand.
+	 */
+	public static void clearAll() {
+		// caches not created yet are empty
+		caches.values().forEach(Cache::clear);
+	}
+
+	/**
+	 * @return statistics of all caches, by cache name
+	 */
+	public static Map<String, CacheStats> stats() {
+		initializeOwners();
+		Map<String, CacheStats> stats = new LinkedHashMap<>();
+		caches.values().forEach(cache -> stats.put(cache.name(), cache.stats()));
+		return stats;
+	}
+}
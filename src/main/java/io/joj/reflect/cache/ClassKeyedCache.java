@@ -0,0 +1,153 @@
+package io.joj.reflect.cache;
+
+import static java.util.Objects.requireNonNull;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Cache of values computed per class, e.g. per annotation type. Create with
+ * {@link Caches#newClassKeyedCache(String, Function)}.
+ * <p>
+ * Values are attached to their classes with {@link ClassValue}, so that lookups are lock-free, and a value (which
+ * usually references its class) does not prevent the class, nor its class loader, from being garbage collected. This
+ * holds as long as the value strongly references only classes visible from the class's own loader (i.e. defined by it,
+ * or its ancestors): a value of a parent loader's class referencing a child loader's class keeps the child loader
+ * alive, for as long as the parent's class lives. Values depending on other loaders must reference them weakly.
+ * Additionally, classes having values are tracked with weak references, in a clock (second chance) queue, which lets
+ * the cache be cleared, and bounded with eviction approximating least recently used. The queue is only touched when a
+ * value is computed, or evicted.
+ * <p>
+ * Values can be {@code null}.
+ *
+ * @author findepi
+ */
+public final class ClassKeyedCache<V> extends Cache {
+
+	private final Function<Class<?>, ? extends V> loader;
+
+	private final ClassValue<Entry<V>> entries = new ClassValue<Entry<V>>() {
+		@Override
+		protected Entry<V> computeValue(Class<?> type) {
+			misses.increment();
+			return new Entry<>(loader.apply(type));
+		}
+	};
+
+	// classes having values, from least recently admitted; guarded by itself
+	private final Set<Node> clock = new LinkedHashSet<>();
+	private final ReferenceQueue<Class<?>> collected = new ReferenceQueue<>();
+
+	ClassKeyedCache(String name, long maximumSize, Function<Class<?>, ? extends V> loader) {
+		super(name, maximumSize);
+		this.loader = requireNonNull(loader, "loader");
+	}
+
+	public V get(Class<?> type) {
+		requests.increment();
+		Entry<V> entry = entries.get(requireNonNull(type, "type"));
+		Node node = entry.node;
+		if (node == null) {
+			admit(type, entry);
+		} else if (!node.referenced) {
+			node.referenced = true;
+		}
+		return entry.value;
+	}
+
+	private void admit(Class<?> type, Entry<V> entry) {
+		synchronized (clock) {
+			if (entry.node != null) {
+				// admitted by other thread
+				return;
+			}
+			Node node = new Node(type, collected);
+			entry.node = node;
+			clock.add(node);
+			trimLocked();
+		}
+	}
+
+	@Override
+	void trim() {
+		synchronized (clock) {
+			trimLocked();
+		}
+	}
+
+	private void trimLocked() {
+		expungeCollected();
+		long maximumSize = maximumSize();
+		while (clock.size() > maximumSize) {
+			Iterator<Node> iterator = clock.iterator();
+			Node oldest = iterator.next();
+			iterator.remove();
+			Class<?> type = oldest.get();
+			if (type == null) {
+				continue;
+			}
+			if (oldest.referenced) {
+				// second chance
+				oldest.referenced = false;
+				clock.add(oldest);
+				continue;
+			}
+			entries.remove(type);
+			evictions.increment();
+		}
+	}
+
+	private void expungeCollected() {
+		Object node;
+		while ((node = collected.poll()) != null) {
+			clock.remove(node);
+		}
+	}
+
+	@Override
+	public long size() {
+		synchronized (clock) {
+			expungeCollected();
+			return clock.size();
+		}
+	}
+
+	@Override
+	public void clear() {
+		synchronized (clock) {
+			for (Node node : clock) {
+				Class<?> type = node.get();
+				if (type != null) {
+					entries.remove(type);
+				}
+			}
+			clock.clear();
+		}
+	}
+
+	private static final class Entry<V> {
+		final V value;
+		// null until admitted to the clock
+		volatile Node node;
+
+		Entry(V value) {
+			this.value = value;
+		}
+	}
+
+	/**
+	 * References the class weakly, as the clock is reachable from static state.
+	 */
+	private static final class Node extends WeakReference<Class<?>> {
+		// set on hits, racy by design
+		boolean referenced;
+
+		Node(Class<?> type, ReferenceQueue<Class<?>> queue) {
+			super(type, queue);
+		}
+	}
+}
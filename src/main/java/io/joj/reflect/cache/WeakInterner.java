@@ -0,0 +1,166 @@
+package io.joj.reflect.cache;
+
+import static java.util.Objects.requireNonNull;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Canonicalizes equal values, i.e. returns single (canonical) instance for all equal values. Create with
+ * {@link Caches#newWeakInterner(String)}.
+ * <p>
+ * Canonical instances are referenced weakly, so they are kept only as long as they are used elsewhere, and do not
+ * prevent their classes, nor class loaders, from being garbage collected. The interner is striped by hash code, each
+ * stripe being guarded by its own lock. When bounded, each stripe evicts its least recently used instances. An evicted
+ * instance remains valid, it only stops being canonical.
+ *
+ * @author findepi
+ */
+public final class WeakInterner<T> extends Cache {
+
+	private static final int STRIPES = 16;
+
+	private final Stripe[] stripes = new Stripe[STRIPES];
+
+	WeakInterner(String name, long maximumSize) {
+		super(name, maximumSize);
+		for (int i = 0; i < STRIPES; i++) {
+			stripes[i] = new Stripe();
+		}
+	}
+
+	/**
+	 * @return canonical instance equal to {@code value}
+	 */
+	public T intern(T value) {
+		requireNonNull(value, "value");
+		requests.increment();
+		int hash = value.hashCode();
+		Stripe stripe = stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+		synchronized (stripe) {
+			stripe.expungeCollected();
+			WeakKey existing = stripe.instances.get(new Probe(value, hash));
+			Object canonical = existing == null ? null : existing.get();
+			if (canonical != null) {
+				@SuppressWarnings("unchecked") // equal to value, added as T
+				T result = (T) canonical;
+				return result;
+			}
+
+			misses.increment();
+			WeakKey key = new WeakKey(value, hash, stripe.collected);
+			stripe.instances.put(key, key);
+			trim(stripe);
+			return value;
+		}
+	}
+
+	@Override
+	void trim() {
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				stripe.expungeCollected();
+				trim(stripe);
+			}
+		}
+	}
+
+	private void trim(Stripe stripe) {
+		long maximumSize = maximumSize();
+		long stripeMaximumSize = maximumSize / STRIPES + (maximumSize % STRIPES == 0 ? 0 : 1);
+		Iterator<Object> iterator = stripe.instances.keySet().iterator();
+		while (stripe.instances.size() > stripeMaximumSize) {
+			iterator.next();
+			iterator.remove();
+			evictions.increment();
+		}
+	}
+
+	@Override
+	public long size() {
+		long size = 0;
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				stripe.expungeCollected();
+				size += stripe.instances.size();
+			}
+		}
+		return size;
+	}
+
+	@Override
+	public void clear() {
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				stripe.instances.clear();
+				stripe.expungeCollected();
+			}
+		}
+	}
+
+	private static final class Stripe {
+		// in access order, for eviction
+		final Map<Object, WeakKey> instances = new LinkedHashMap<>(16, 0.75f, true);
+		final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+
+		void expungeCollected() {
+			Object key;
+			while ((key = collected.poll()) != null) {
+				// removed by identity, as collected keys are not equal to anything else
+				instances.remove(key);
+			}
+		}
+	}
+
+	private static final class WeakKey extends WeakReference<Object> {
+		private final int hash;
+
+		WeakKey(Object value, int hash, ReferenceQueue<Object> queue) {
+			super(value, queue);
+			this.hash = hash;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof WeakKey) || ((WeakKey) obj).hash != hash) {
+				return false;
+			}
+			Object value = get();
+			return value != null && value.equals(((WeakKey) obj).get());
+		}
+	}
+
+	/**
+	 * Lookup key, equal to keys of equal values.
+	 */
+	private static final class Probe {
+		private final Object value;
+		private final int hash;
+
+		Probe(Object value, int hash) {
+			this.value = value;
+			this.hash = hash;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof WeakKey && value.equals(((WeakKey) obj).get());
+		}
+	}
+}
@@ -0,0 +1,153 @@
+package io.joj.reflect.metrics;
+
+import java.lang.annotation.Annotation;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * {@link SynthesisMetrics} that count events, optionally exposed over JMX.
+ * <p>
+ * Example:
+ *
+ * <pre>
+ * <code>
+ * CountingSynthesisMetrics metrics = new CountingSynthesisMetrics();
+ * metrics.registerMBean();
+ * Metrics.install(metrics);
+ * </code>
+ * </pre>
+ *
+ * @author findepi
+ */
+public class CountingSynthesisMetrics implements SynthesisMetrics, CountingSynthesisMetricsMXBean {
+
+	public static final String DEFAULT_OBJECT_NAME = "io.joj.reflect:type=SynthesisMetrics";
+
+	private final ConcurrentMap<String, LongAdder> annotationsBuilt = new ConcurrentHashMap<>();
+	private final LongAdder implementationClassesCreated = new LongAdder();
+	private final LongAdder methodReferenceResolutions = new LongAdder();
+	private final LongAdder methodReferenceCacheHits = new LongAdder();
+	private final LongAdder hashCodeComputations = new LongAdder();
+	private final LongAdder hashCodeCacheHits = new LongAdder();
+	private final LongAdder arrayClones = new LongAdder();
+	private final LongAdder validationFailures = new LongAdder();
+
+	@Override
+	public void annotationBuilt(Class<? extends Annotation> annotationType) {
+		annotationsBuilt.computeIfAbsent(annotationType.getName(), name -> new LongAdder())
+				.increment();
+	}
+
+	@Override
+	public void implementationClassCreated(Class<?> type) {
+		implementationClassesCreated.increment();
+	}
+
+	@Override
+	public void methodReferenceResolved(Class<?> type, boolean cacheHit) {
+		methodReferenceResolutions.increment();
+		if (cacheHit) {
+			methodReferenceCacheHits.increment();
+		}
+	}
+
+	@Override
+	public void hashCodeRequested(boolean cacheHit) {
+		(cacheHit ? hashCodeCacheHits : hashCodeComputations).increment();
+	}
+
+	@Override
+	public void arrayCloned() {
+		arrayClones.increment();
+	}
+
+	@Override
+	public void validationFailed(Class<? extends Annotation> annotationType) {
+		validationFailures.increment();
+	}
+
+	@Override
+	public Map<String, Long> getAnnotationsBuilt() {
+		Map<String, Long> snapshot = new TreeMap<>();
+		annotationsBuilt.forEach((name, count) -> snapshot.put(name, count.sum()));
+		return snapshot;
+	}
+
+	@Override
+	public long getImplementationClassesCreated() {
+		return implementationClassesCreated.sum();
+	}
+
+	@Override
+	public long getMethodReferenceResolutions() {
+		return methodReferenceResolutions.sum();
+	}
+
+	@Override
+	public long getMethodReferenceCacheHits() {
+		return methodReferenceCacheHits.sum();
+	}
+
+	@Override
+	public long getHashCodeComputations() {
+		return hashCodeComputations.sum();
+	}
+
+	@Override
+	public long getHashCodeCacheHits() {
+		return hashCodeCacheHits.sum();
+	}
+
+	@Override
+	public long getArrayClones() {
+		return arrayClones.sum();
+	}
+
+	@Override
+	public long getValidationFailures() {
+		return validationFailures.sum();
+	}
+
+	@Override
+	public void reset() {
+		annotationsBuilt.clear();
+		implementationClassesCreated.reset();
+		methodReferenceResolutions.reset();
+		methodReferenceCacheHits.reset();
+		hashCodeComputations.reset();
+		hashCodeCacheHits.reset();
+		arrayClones.reset();
+		validationFailures.reset();
+	}
+
+	/**
+	 * Registers this in the platform {@link MBeanServer} under {@link #DEFAULT_OBJECT_NAME}.
+	 *
+	 * @return registered name
+	 */
+	public ObjectName registerMBean() {
+		return registerMBean(DEFAULT_OBJECT_NAME);
+	}
+
+	/**
+	 * Registers this in the platform {@link MBeanServer} under {@code objectName}.
+	 *
+	 * @return registered name
+	 */
+	public ObjectName registerMBean(String objectName) {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			return server.registerMBean(this, new ObjectName(objectName)).getObjectName();
+		} catch (JMException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,32 @@
+package io.joj.reflect.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link CountingSynthesisMetrics}.
+ *
+ * @author findepi
+ */
+public interface CountingSynthesisMetricsMXBean {
+
+	/**
+	 * @return number of annotations built, by annotation type name
+	 */
+	Map<String, Long> getAnnotationsBuilt();
+
+	long getImplementationClassesCreated();
+
+	long getMethodReferenceResolutions();
+
+	long getMethodReferenceCacheHits();
+
+	long getHashCodeComputations();
+
+	long getHashCodeCacheHits();
+
+	long getArrayClones();
+
+	long getValidationFailures();
+
+	void reset();
+}
@@ -0,0 +1,37 @@
+package io.joj.reflect.metrics;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Holds currently installed {@link SynthesisMetrics}. By default, {@link SynthesisMetrics#NOOP} is installed, so
+ * instrumentation costs a field read and a call to an empty method.
+ *
+ * @author findepi
+ */
+public final class Metrics {
+	private Metrics() {
+	}
+
+	private static volatile SynthesisMetrics current = SynthesisMetrics.NOOP;
+
+	/**
+	 * @return currently installed metrics, never {@code null}
+	 */
+	public static SynthesisMetrics current() {
+		return current;
+	}
+
+	/**
+	 * Installs {@code metrics}, replacing previously installed ones.
+	 */
+	public static void install(SynthesisMetrics metrics) {
+		current = requireNonNull(metrics, "metrics");
+	}
+
+	/**
+	 * Disables metrics.
+	 */
+	public static void uninstall() {
+		current = SynthesisMetrics.NOOP;
+	}
+}
@@ -0,0 +1,63 @@
+package io.joj.reflect.metrics;
+
+import java.lang.annotation.Annotation;
+
+/**
+ * Receives events from synthesis hot paths. Install an implementation with {@link Metrics#install(SynthesisMetrics)}.
+ * <p>
+ * Methods are called synchronously, on the thread that does the work being reported, so implementations must be
+ * thread-safe and cheap. All methods do nothing by default.
+ *
+ * @author findepi
+ * @see CountingSynthesisMetrics
+ */
+public interface SynthesisMetrics {
+
+	/**
+	 * Does nothing. Installed when metrics are not enabled.
+	 */
+	SynthesisMetrics NOOP = new SynthesisMetrics() {
+	};
+
+	/**
+	 * Synthetic annotation of {@code annotationType} was built.
+	 */
+	default void annotationBuilt(Class<? extends Annotation> annotationType) {
+	}
+
+	/**
+	 * Implementation class (e.g. a {@link java.lang.reflect.Proxy} class) was created or resolved for {@code type}.
+	 */
+	default void implementationClassCreated(Class<?> type) {
+	}
+
+	/**
+	 * Method reference was resolved to a method of {@code type}.
+	 *
+	 * @param cacheHit
+	 *            whether the resolution was served from a cache
+	 */
+	default void methodReferenceResolved(Class<?> type, boolean cacheHit) {
+	}
+
+	/**
+	 * Synthetic annotation's hash code was requested.
+	 *
+	 * @param cacheHit
+	 *            whether the hash code was already cached, or had to be computed
+	 */
+	default void hashCodeRequested(boolean cacheHit) {
+	}
+
+	/**
+	 * Array value was cloned, to be returned from an annotation method.
+	 */
+	default void arrayCloned() {
+	}
+
+	/**
+	 * Values provided for synthetic annotation of {@code annotationType} were rejected.
+	 */
+	default void validationFailed(Class<? extends Annotation> annotationType) {
+	}
+}
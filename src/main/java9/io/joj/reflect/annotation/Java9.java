@@ -0,0 +1,21 @@
+package io.joj.reflect.annotation;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Forward compatibility layer with Java 9. This is Java 9+ version, which delegates to methods the layer polyfills.
+ * 
+ * @author findepi
+ * @since Oct 23, 2016
+ */
+class Java9 {
+
+	/**
+	 * Equivalent to {@code primary.or(secondary)}.
+	 */
+	public static <T> Optional<T> orOptionals(Optional<T> primary, Supplier<Optional<T>> secondary) {
+		return primary.or(secondary);
+	}
+
+}
@@ -0,0 +1,38 @@
+package io.joj.reflect.annotation.internal;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+
+/**
+ * Creates {@link MethodHandle}s for annotation getters, including getters of non-public annotation types.
+ * <p>
+ * This is Java 9+ version, which uses {@link MethodHandles#privateLookupIn(Class, MethodHandles.Lookup)} rather than
+ * {@link Method#setAccessible(boolean)}.
+ *
+ * @author findepi
+ */
+public final class Accessors {
+	private Accessors() {
+	}
+
+	/**
+	 * @return handle of type {@code (Object)Object}, invoking {@code getter} on its argument
+	 */
+	public static MethodHandle getter(Method getter) {
+		MethodHandle handle;
+		try {
+			handle = MethodHandles.publicLookup().unreflect(getter);
+		} catch (IllegalAccessException publicAccessException) {
+			try {
+				handle = MethodHandles.privateLookupIn(getter.getDeclaringClass(), MethodHandles.lookup())
+						.unreflect(getter);
+			} catch (IllegalAccessException e) {
+				e.addSuppressed(publicAccessException);
+				throw new IllegalStateException(e);
+			}
+		}
+		return handle.asType(MethodType.methodType(Object.class, Object.class));
+	}
+}
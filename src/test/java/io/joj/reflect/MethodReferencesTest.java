@@ -23,4 +23,32 @@ public class MethodReferencesTest {
 		assertEquals(method, Iterable.class.getMethod("iterator"));
 	}
 
+	@Test
+	public void getMethodFromCachedMethodReference() throws Exception {
+		for (int i = 0; i < 2; i++) {
+			// When
+			Method method = MethodReferences.getMethod(Runnable.class, Runnable::run);
+			// Then
+			assertEquals(method, Runnable.class.getMethod("run"));
+		}
+	}
+
+	@Test
+	public void getMethodFromCapturingLambda() throws Exception {
+		for (boolean first : new boolean[] { true, false }) {
+			// Given
+			@SuppressWarnings("rawtypes")
+			MethodReference0<Iterable> ref = iterable -> {
+				if (first) {
+					iterable.iterator();
+				} else {
+					iterable.spliterator();
+				}
+			};
+			// When
+			Method method = MethodReferences.getMethod(Iterable.class, ref);
+			// Then
+			assertEquals(method.getName(), first ? "iterator" : "spliterator");
+		}
+	}
 }
@@ -6,12 +6,25 @@ import static io.joj.reflect.annotation.SyntheticAnnotationCompleteness.THROW_WH
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNull;
 
+import java.lang.annotation.Annotation;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
 import org.assertj.core.api.Assertions;
 import org.testng.annotations.Test;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 
 import io.joj.reflect.annotation.AnnotationBuilder.Builder;
+import io.joj.reflect.annotation.AnnotationBuilder.MutableBuilder;
 
 /**
  * @author findepi
@@ -109,6 +122,202 @@ public class AnnotationBuilderTest {
 				.isInstanceOf(UnsupportedOperationException.class);
 	}
 
+	@Test
+	public void testBuildNestedAnnotations() {
+		// When
+		Outer first = AnnotationBuilder.builderFor(Outer.class)
+				.withNested(Outer::inner).building(inner -> inner.with(Inner::value).returning("x"))
+				.withNestedArray(Outer::inners).building(
+						inner -> inner.with(Inner::value).returning("a"),
+						inner -> inner.with(Inner::value).returning("x"))
+				.build();
+		Outer second = AnnotationBuilder.builderFor(Outer.class)
+				.withNested(Outer::inner).building(inner -> inner.with(Inner::value).returning("x"))
+				.with(Outer::inners).returning(new Inner[] {
+						AnnotationBuilder.buildFromMap(Inner.class, ImmutableMap.of("value", "a")),
+						AnnotationBuilder.buildFromMap(Inner.class, ImmutableMap.of("value", "x")) })
+				.build();
+
+		// Then
+		assertEquals(first.inner().value(), "x");
+		assertEquals(first.inners().length, 2);
+		assertEquals(first, second);
+		assertEquals(first.hashCode(), second.hashCode());
+		Assertions.assertThat(first.inner()).as("equal nested annotations are shared")
+				.isSameAs(second.inner())
+				.isSameAs(first.inners()[1]);
+	}
+
+	@Test
+	public void testPrewarm() {
+		// When
+		Map<Class<? extends Annotation>, Duration> timings = AnnotationBuilder.prewarm(Outer.class, Test.class);
+
+		// Then
+		assertEquals(timings.keySet(), ImmutableSet.of(Outer.class, Test.class));
+		Assertions.assertThat(timings.values()).allMatch(duration -> !duration.isNegative());
+	}
+
+	@Test
+	public void testPrewarmInParallel() throws Exception {
+		// Given
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			// When
+			Map<Class<? extends Annotation>, Duration> timings = AnnotationBuilder
+					.prewarm(executor, Outer.class, Inner.class)
+					.get(10, TimeUnit.SECONDS);
+
+			// Then
+			assertEquals(ImmutableList.copyOf(timings.keySet()), ImmutableList.of(Outer.class, Inner.class));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testVariants() {
+		// Given
+		Builder<Sharded> builder = AnnotationBuilder.builderFor(Sharded.class)
+				.with(Sharded::name).returning("users");
+
+		// When
+		List<Sharded> variants = builder.variants(Sharded::shard, ImmutableList.of(0, 1, 2));
+
+		// Then
+		Assertions.assertThat(variants).hasSize(3);
+		for (int shard = 0; shard < 3; shard++) {
+			Sharded expected = builder.with(Sharded::shard).returning(shard).build();
+			Sharded variant = variants.get(shard);
+			assertEquals(variant.shard(), shard);
+			assertEquals(variant.name(), "users");
+			assertEquals(variant.hashCode(), expected.hashCode());
+			assertEquals(variant, expected);
+			assertEquals(expected, variant);
+		}
+	}
+
+	@Test
+	public void testVariantsOverridingValue() {
+		// When
+		List<Sharded> variants = AnnotationBuilder.builderFor(Sharded.class)
+				.with(Sharded::name).returning("users")
+				.with(Sharded::shard).returning(7)
+				.variants(Sharded::name, ImmutableList.of("orders"));
+
+		// Then
+		assertEquals(variants.get(0), AnnotationBuilder.buildFromMap(Sharded.class, ImmutableMap.of(
+				"name", "orders",
+				"shard", 7)));
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testVariantsIncomplete() {
+		// When
+		AnnotationBuilder.builderFor(Sharded.class)
+				.variants(Sharded::shard, ImmutableList.of(0, 1));
+		// Then expect exception
+	}
+
+	@Test
+	public void testMarkerShared() {
+		// When
+		MarkerAnnotation first = AnnotationBuilder.buildFromMap(MarkerAnnotation.class, ImmutableMap.of());
+		MarkerAnnotation second = AnnotationBuilder.builderFor(MarkerAnnotation.class).build();
+
+		// Then
+		Assertions.assertThat(second).isSameAs(first);
+		assertEquals(first, MarkedSample.class.getAnnotation(MarkerAnnotation.class));
+		assertEquals(first.hashCode(), 0);
+		assertEquals(first.toString(), "@" + MarkerAnnotation.class.getName() + "()");
+	}
+
+	@Test
+	public void testSingleValue() {
+		// Given
+		SingleValue compiled = MarkedSample.class.getAnnotation(SingleValue.class);
+
+		// When
+		SingleValue synthetic = AnnotationBuilder.builderFor(SingleValue.class)
+				.with(SingleValue::value).returning("v")
+				.build();
+
+		// Then
+		assertEquals(synthetic.value(), "v");
+		assertEquals(synthetic.hashCode(), compiled.hashCode());
+		assertEquals(synthetic, compiled);
+		assertEquals(compiled, synthetic);
+		assertEquals(synthetic, AnnotationBuilder.buildFromMap(SingleValue.class, ImmutableMap.of("value", "v"),
+				NULL_WHERE_UNDEFINED));
+		assertEquals(synthetic.toString(), "@" + SingleValue.class.getName() + "(value=v)");
+	}
+
+	@Test
+	public void testMutableBuilder() {
+		// Given
+		MutableBuilder<Sharded> builder = AnnotationBuilder.mutableBuilderFor(Sharded.class);
+		MutableBuilder<Sharded>.Slot<String> name = builder.slot(Sharded::name);
+		MutableBuilder<Sharded>.Slot<Integer> shard = builder.slot(Sharded::shard);
+		name.set("users");
+
+		// When
+		Sharded first = shard.set(1).build();
+		Sharded second = shard.set(2).build();
+
+		// Then
+		assertEquals(first, AnnotationBuilder.buildFromMap(Sharded.class, ImmutableMap.of(
+				"name", "users",
+				"shard", 1)));
+		assertEquals(second.shard(), 2);
+		assertEquals(second.name(), "users");
+		Assertions.assertThat(second.tags()).containsExactly("a", "b");
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testMutableBuilderReset() {
+		// Given
+		MutableBuilder<Sharded> builder = AnnotationBuilder.mutableBuilderFor(Sharded.class);
+		builder.slot(Sharded::name).set("users");
+		builder.slot(Sharded::shard).set(1);
+		builder.build();
+
+		// When
+		builder.reset().build();
+		// Then expect exception
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	private @interface MarkerAnnotation {
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	private @interface SingleValue {
+		String value();
+	}
+
+	@MarkerAnnotation
+	@SingleValue("v")
+	private static class MarkedSample {
+	}
+
+	private @interface Sharded {
+		String name();
+
+		int shard();
+
+		String[] tags() default { "a", "b" };
+	}
+
+	private @interface Inner {
+		String value();
+	}
+
+	private @interface Outer {
+		Inner inner();
+
+		Inner[] inners() default {};
+	}
+
 	private @interface AnnotationWithOneMandatoryAttribute {
 
 		String required();
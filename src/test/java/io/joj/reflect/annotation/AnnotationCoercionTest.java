@@ -0,0 +1,142 @@
+package io.joj.reflect.annotation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * @author findepi
+ */
+public class AnnotationCoercionTest {
+
+	@Retention(RetentionPolicy.RUNTIME)
+	private @interface Inner {
+		String value();
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	private @interface Config {
+		long size() default 0;
+
+		double ratio() default 0;
+
+		String[] tags() default {};
+
+		int[] limits() default {};
+
+		long[] ids() default {};
+
+		RetentionPolicy policy() default RetentionPolicy.CLASS;
+
+		Class<?> type() default Object.class;
+
+		Inner[] inner() default {};
+	}
+
+	@Test
+	public void testCoerceValues() {
+		// When
+		Config config = AnnotationCoercion.forType(Config.class).build(ImmutableMap.<String, Object> builder()
+				.put("size", 3)
+				.put("ratio", 2L)
+				.put("tags", Arrays.asList("a", "b"))
+				.put("limits", Arrays.asList((short) 1, 2))
+				.put("policy", "RUNTIME")
+				.put("type", "java.lang.String")
+				.put("inner", ImmutableMap.of("value", "x"))
+				.build());
+
+		// Then
+		assertThat(config.size()).isEqualTo(3L);
+		assertThat(config.ratio()).isEqualTo(2.0);
+		assertThat(config.tags()).containsExactly("a", "b");
+		assertThat(config.limits()).containsExactly(1, 2);
+		assertThat(config.policy()).isEqualTo(RetentionPolicy.RUNTIME);
+		assertThat(config.type()).isEqualTo(String.class);
+		assertThat(config.inner()).hasSize(1);
+		assertThat(config.inner()[0].value()).isEqualTo("x");
+	}
+
+	@Test
+	public void testEqualToExactlyTyped() {
+		// When
+		Config coerced = AnnotationCoercion.forType(Config.class).build(ImmutableMap.of("size", 3, "tags", "a"));
+
+		// Then
+		Config exact = AnnotationBuilder.buildFromMap(Config.class,
+				ImmutableMap.of("size", 3L, "tags", new String[] { "a" }));
+		assertThat(coerced).isEqualTo(exact);
+		assertThat(coerced.hashCode()).isEqualTo(exact.hashCode());
+	}
+
+	@Test
+	public void testWidenPrimitiveArray() {
+		// When
+		Config config = AnnotationCoercion.forType(Config.class).build(ImmutableMap.of(
+				"ids", new int[] { 1, 2 },
+				"limits", new char[] { 'a' }));
+
+		// Then
+		assertThat(config.ids()).containsExactly(1L, 2L);
+		assertThat(config.limits()).containsExactly((int) 'a');
+		assertThat(AnnotationCoercion.forType(Config.class).build(ImmutableMap.of("ids", new byte[] { -1 })).ids())
+				.containsExactly(-1L);
+		assertThatThrownBy(() -> AnnotationCoercion.forType(Config.class).build(ImmutableMap.of(
+				"limits", new long[] { 1 })))
+				.isInstanceOf(ClassCastException.class)
+				.hasMessageContaining("limits");
+	}
+
+	@Test
+	public void testResolveClassWithContextClassLoader() throws Exception {
+		// Given
+		Thread thread = Thread.currentThread();
+		ClassLoader contextClassLoader = thread.getContextClassLoader();
+		URL testClasses = AnnotationCoercionTest.class.getProtectionDomain().getCodeSource().getLocation();
+		try (URLClassLoader isolated = new URLClassLoader(new URL[] { testClasses }, null)) {
+			thread.setContextClassLoader(isolated);
+
+			// When
+			Config fromContext = AnnotationCoercion.forType(Config.class).build(ImmutableMap.of(
+					"type", AnnotationCoercionTest.class.getName()));
+			Config fromAnnotationLoader = AnnotationCoercion.forType(Config.class).build(ImmutableMap.of(
+					"type", Test.class.getName()));
+
+			// Then
+			assertThat(fromContext.type().getClassLoader()).isSameAs(isolated);
+			assertThat(fromAnnotationLoader.type()).isEqualTo(Test.class);
+		} finally {
+			thread.setContextClassLoader(contextClassLoader);
+		}
+	}
+
+	@Test
+	public void testRejectNarrowing() {
+		assertThatThrownBy(() -> AnnotationCoercion.forType(Config.class).build(ImmutableMap.of("limits", 1L)))
+				.isInstanceOf(ClassCastException.class)
+				.hasMessageContaining("limits");
+	}
+
+	@Test
+	public void testRejectUnknownEnumConstant() {
+		assertThatThrownBy(() -> AnnotationCoercion.forType(Config.class).build(ImmutableMap.of("policy", "NONE")))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("No constant NONE");
+	}
+
+	@Test
+	public void testRejectUnknownAttribute() {
+		assertThatThrownBy(() -> AnnotationCoercion.forType(Config.class).build(ImmutableMap.of("other", 1)))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("[other]");
+	}
+}
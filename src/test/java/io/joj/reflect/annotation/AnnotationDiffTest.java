@@ -0,0 +1,91 @@
+package io.joj.reflect.annotation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * @author findepi
+ */
+public class AnnotationDiffTest {
+
+	@Retention(RetentionPolicy.RUNTIME)
+	private @interface Route {
+		String path();
+
+		String method() default "GET";
+
+		int[] ports() default { 80 };
+	}
+
+	@Route(path = "/compiled", ports = { 80, 443 })
+	private static class Compiled {
+	}
+
+	@Test
+	public void testSyntheticAnnotations() {
+		// Given
+		Route left = AnnotationBuilder.buildFromMap(Route.class, ImmutableMap.of("path", "/a"));
+		Route right = AnnotationBuilder.buildFromMap(Route.class, ImmutableMap.of(
+				"path", "/a",
+				"method", "POST",
+				"ports", new int[] { 80 }));
+
+		// When
+		AnnotationDiff diff = AnnotationDiff.between(left, right);
+
+		// Then
+		assertThat(diff.isEmpty()).isFalse();
+		assertThat(diff.changedAttributes()).containsExactly("method");
+		assertThat(diff.isChanged("method")).isTrue();
+		assertThat(diff.isChanged("ports")).isFalse();
+		assertThat(diff.leftValue("method")).isEqualTo("GET");
+		assertThat(diff.rightValue("method")).isEqualTo("POST");
+		assertThat(diff.toString()).isEqualTo("AnnotationDiff{@" + Route.class.getName() + ": method: GET -> POST}");
+	}
+
+	@Test
+	public void testEqualAnnotations() {
+		// Given
+		Route compiled = Compiled.class.getAnnotation(Route.class);
+		Route synthetic = AnnotationBuilder.buildFromMap(Route.class, ImmutableMap.of(
+				"path", "/compiled",
+				"ports", new int[] { 80, 443 }));
+
+		// Then
+		assertThat(AnnotationDiff.between(compiled, compiled).isEmpty()).isTrue();
+		assertThat(AnnotationDiff.between(compiled, synthetic).isEmpty()).isTrue();
+		assertThat(AnnotationDiff.between(synthetic, compiled).isEmpty()).isTrue();
+	}
+
+	@Test
+	public void testCompiledAnnotation() {
+		// Given
+		Route compiled = Compiled.class.getAnnotation(Route.class);
+		Route synthetic = AnnotationBuilder.buildFromMap(Route.class, ImmutableMap.of("path", "/other"));
+
+		// When
+		AnnotationDiff diff = AnnotationDiff.between(compiled, synthetic);
+
+		// Then
+		assertThat(diff.changedAttributes()).containsExactly("path", "ports");
+		assertThat((int[]) diff.leftValue("ports")).containsExactly(80, 443);
+		assertThat((int[]) diff.rightValue("ports")).containsExactly(80);
+	}
+
+	@Test
+	public void testRejectUnknownAttribute() {
+		// Given
+		Route compiled = Compiled.class.getAnnotation(Route.class);
+		AnnotationDiff diff = AnnotationDiff.between(compiled, compiled);
+		// Then
+		assertThatThrownBy(() -> diff.isChanged("other"))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+}
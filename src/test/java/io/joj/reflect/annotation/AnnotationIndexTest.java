@@ -0,0 +1,64 @@
+package io.joj.reflect.annotation;
+
+import static io.joj.reflect.annotation.AnnotationMatcherTest.route;
+import static io.joj.reflect.annotation.SyntheticAnnotationCompleteness.NULL_WHERE_UNDEFINED;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.lang.annotation.Retention;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import io.joj.reflect.annotation.AnnotationMatcherTest.Method;
+import io.joj.reflect.annotation.AnnotationMatcherTest.Route;
+
+/**
+ * @author findepi
+ */
+public class AnnotationIndexTest {
+
+	@Test
+	public void testFindMatchesLinearFilter() {
+		// Given
+		List<Route> routes = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			routes.add(route("/" + i % 10, i % 3 == 0 ? Method.POST : Method.GET));
+		}
+		AnnotationIndex<Route> index = AnnotationIndex.of(Route.class, routes);
+		AnnotationMatcher<Route> matcher = AnnotationMatcher.of(AnnotationBuilder.builderFor(Route.class)
+				.completeness(NULL_WHERE_UNDEFINED)
+				.with(Route::path).returning("/3")
+				.with(Route::method).returning(Method.POST)
+				.build());
+
+		// When
+		List<Route> found = index.find(matcher);
+
+		// Then
+		assertThat(found).hasSize(34);
+		assertThat(found).containsExactlyElementsOf(matcher.filter(routes));
+		assertThat(index.find(matcher)).containsExactlyElementsOf(found);
+	}
+
+	@Test
+	public void testFindWithUnknownValue() {
+		// Given
+		AnnotationIndex<Route> index = AnnotationIndex.of(Route.class, new ArrayList<>());
+		AnnotationMatcher<Route> matcher = AnnotationMatcher.of(route("/a", Method.GET));
+		// Then
+		assertThat(index.find(matcher)).isEmpty();
+	}
+
+	@Test
+	public void testRejectMatcherOfOtherType() {
+		// Given
+		@SuppressWarnings({ "rawtypes", "unchecked" })
+		AnnotationIndex<Retention> index = (AnnotationIndex) AnnotationIndex.of(Route.class, new ArrayList<>());
+		AnnotationMatcher<Retention> matcher = AnnotationMatcher.of(Route.class.getAnnotation(Retention.class));
+		// Then
+		assertThatThrownBy(() -> index.find(matcher))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+}
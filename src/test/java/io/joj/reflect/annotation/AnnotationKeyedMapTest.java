@@ -0,0 +1,113 @@
+package io.joj.reflect.annotation;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.lang.annotation.Annotation;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+/**
+ * @author findepi
+ */
+public class AnnotationKeyedMapTest {
+
+	@Retention(RetentionPolicy.RUNTIME)
+	private @interface Named {
+		String value();
+	}
+
+	@Named("compiled")
+	private static class Compiled {
+	}
+
+	@Test
+	public void testSyntheticAndCompiledKeysAreInterchangeable() {
+		// Given
+		AnnotationKeyedMap<String> map = new AnnotationKeyedMap<>();
+		Named compiled = Compiled.class.getAnnotation(Named.class);
+		Named synthetic = named("compiled");
+		// When
+		map.put(compiled, "value");
+		// Then
+		assertEquals(map.size(), 1);
+		assertEquals(map.get(compiled), "value");
+		assertEquals(map.get(synthetic), "value");
+		assertNull(map.get(named("other")));
+	}
+
+	@Test
+	public void testNormalizeKeysOnInsert() {
+		// Given
+		AnnotationKeyedMap<String> map = new AnnotationKeyedMap<>();
+		Named compiled = Compiled.class.getAnnotation(Named.class);
+		// When
+		map.put(compiled, "value");
+		// Then
+		List<Annotation> keys = new ArrayList<>();
+		map.forEach((key, value) -> keys.add(key));
+		assertEquals(keys.size(), 1);
+		assertEquals(keys.get(0), compiled);
+		assertNotNull(SyntheticAnnotationInvocationHandler.handlerOf(keys.get(0)), "key should be synthetic");
+	}
+
+	@Test
+	public void testComputeIfAbsentAndRemove() {
+		// Given
+		AnnotationKeyedMap<String> map = new AnnotationKeyedMap<>();
+		// When
+		String first = map.computeIfAbsent(named("a"), key -> ((Named) key).value() + "!");
+		String second = map.computeIfAbsent(named("a"), key -> "unexpected");
+		// Then
+		assertEquals(first, "a!");
+		assertEquals(second, "a!");
+		assertTrue(map.containsKey(named("a")));
+		assertEquals(map.remove(named("a")), "a!");
+		assertFalse(map.containsKey(named("a")));
+		assertTrue(map.isEmpty());
+	}
+
+	@Test
+	public void testConcurrentReadsAndWrites() throws Exception {
+		// Given
+		AnnotationKeyedMap<Integer> map = new AnnotationKeyedMap<>();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			// When
+			List<Future<?>> futures = new ArrayList<>();
+			for (int thread = 0; thread < 4; thread++) {
+				int offset = thread * 1000;
+				futures.add(executor.submit(() -> {
+					for (int i = offset; i < offset + 1000; i++) {
+						map.put(named("n" + i), i);
+						assertEquals(map.get(named("n" + i)), Integer.valueOf(i));
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get(1, TimeUnit.MINUTES);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		// Then
+		assertEquals(map.size(), 4000);
+	}
+
+	private static Named named(String value) {
+		return AnnotationBuilder.builderFor(Named.class)
+				.with(Named::value).returning(value)
+				.build();
+	}
+}
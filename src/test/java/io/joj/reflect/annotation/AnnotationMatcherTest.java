@@ -0,0 +1,98 @@
+package io.joj.reflect.annotation;
+
+import static io.joj.reflect.annotation.SyntheticAnnotationCompleteness.THROW_WHERE_UNDEFINED;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.Arrays;
+
+import org.testng.annotations.Test;
+
+/**
+ * @author findepi
+ */
+public class AnnotationMatcherTest {
+
+	enum Method {
+		GET, POST
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@interface Route {
+		String path();
+
+		Method method() default Method.GET;
+
+		String[] produces() default {};
+	}
+
+	@Route(path = "/compiled", produces = "text/plain")
+	private static class Compiled {
+	}
+
+	@Test
+	public void testMatchSpecifiedAttributesOnly() {
+		// Given
+		AnnotationMatcher<Route> matcher = AnnotationMatcher.of(AnnotationBuilder.builderFor(Route.class)
+				.completeness(THROW_WHERE_UNDEFINED)
+				.with(Route::method).returning(Method.GET)
+				.build());
+
+		// Then
+		assertThat(matcher.test(route("/a", Method.GET))).isTrue();
+		assertThat(matcher.test(route("/b", Method.POST))).isFalse();
+		assertThat(matcher.test(Compiled.class.getAnnotation(Route.class))).isTrue();
+		assertThat(matcher.test(Compiled.class.getAnnotation(Retention.class))).isFalse();
+	}
+
+	@Test
+	public void testMatchArrayAttribute() {
+		// Given
+		AnnotationMatcher<Route> matcher = AnnotationMatcher.of(AnnotationBuilder.builderFor(Route.class)
+				.completeness(THROW_WHERE_UNDEFINED)
+				.with(Route::produces).returning(new String[] { "text/plain" })
+				.build());
+
+		// Then
+		assertThat(matcher.test(Compiled.class.getAnnotation(Route.class))).isTrue();
+		assertThat(matcher.test(route("/a", Method.GET))).isFalse();
+	}
+
+	@Test
+	public void testCompletePatternMatchesEqual() {
+		// Given
+		AnnotationMatcher<Route> matcher = AnnotationMatcher.of(Compiled.class.getAnnotation(Route.class));
+		Route equal = AnnotationBuilder.builderFor(Route.class)
+				.with(Route::path).returning("/compiled")
+				.with(Route::produces).returning(new String[] { "text/plain" })
+				.build();
+
+		// Then
+		assertThat(matcher.test(equal)).isTrue();
+		assertThat(matcher.test(route("/compiled", Method.GET))).isFalse();
+	}
+
+	@Test
+	public void testFilter() {
+		// Given
+		AnnotationMatcher<Route> matcher = AnnotationMatcher.of(AnnotationBuilder.builderFor(Route.class)
+				.completeness(THROW_WHERE_UNDEFINED)
+				.with(Route::method).returning(Method.POST)
+				.build());
+
+		// When
+		Iterable<Route> routes = Arrays.asList(route("/a", Method.POST), route("/b", Method.GET),
+				route("/c", Method.POST));
+
+		// Then
+		assertThat(matcher.filter(routes)).extracting(Route::path).containsExactly("/a", "/c");
+	}
+
+	static Route route(String path, Method method) {
+		return AnnotationBuilder.builderFor(Route.class)
+				.with(Route::path).returning(path)
+				.with(Route::method).returning(method)
+				.build();
+	}
+}
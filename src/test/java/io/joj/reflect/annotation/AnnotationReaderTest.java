@@ -0,0 +1,194 @@
+package io.joj.reflect.annotation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * @author findepi
+ */
+public class AnnotationReaderTest {
+
+	@Retention(RetentionPolicy.RUNTIME)
+	private @interface Inner {
+		String value();
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	private @interface Config {
+		String name();
+
+		int size() default 1;
+
+		double ratio() default 0.5;
+
+		char separator() default ',';
+
+		Target target() default @Target({});
+
+		RetentionPolicy policy() default RetentionPolicy.CLASS;
+
+		Class<?> type() default Object.class;
+
+		String[] tags() default {};
+
+		long[] limits() default {};
+
+		Inner inner() default @Inner("default");
+	}
+
+	@Test
+	public void testReadAllValueKinds() throws IOException {
+		// Given
+		String json = "{\"name\": \"n\", \"size\": 7, \"ratio\": 1.5e1, \"separator\": \";\", \"policy\": \"RUNTIME\","
+				+ " \"type\": \"java.lang.String\", \"tags\": [\"a\", \"b\"], \"limits\": 3,"
+				+ " \"inner\": {\"value\": \"i\"}}";
+		// When
+		Config config = AnnotationReader.forType(Config.class).read(new JsonTokenReader(new StringReader(json)));
+		// Then
+		assertThat(config.name()).isEqualTo("n");
+		assertThat(config.size()).isEqualTo(7);
+		assertThat(config.ratio()).isEqualTo(15.0);
+		assertThat(config.separator()).isEqualTo(';');
+		assertThat(config.policy()).isEqualTo(RetentionPolicy.RUNTIME);
+		assertThat(config.type()).isEqualTo(String.class);
+		assertThat(config.tags()).containsExactly("a", "b");
+		assertThat(config.limits()).containsExactly(3L);
+		assertThat(config.inner().value()).isEqualTo("i");
+	}
+
+	@Test
+	public void testEqualToBuiltFromMap() throws IOException {
+		// Given
+		String json = "{\"name\": \"n\", \"tags\": [\"x\"]}";
+		// When
+		Config config = AnnotationReader.forType(Config.class).read(new JsonTokenReader(new StringReader(json)));
+		// Then
+		Config expected = AnnotationBuilder.buildFromMap(Config.class,
+				ImmutableMap.of("name", "n", "tags", new String[] { "x" }));
+		assertThat(config).isEqualTo(expected);
+		assertThat(config.hashCode()).isEqualTo(expected.hashCode());
+		assertThat(config.size()).isEqualTo(1);
+	}
+
+	@Test
+	public void testReadArrays() throws IOException {
+		// Given
+		String json = "{\"name\": \"n\", \"tags\": [], \"limits\": [1, 2, 3, 4, 5, 6]}";
+		// When
+		Config config = AnnotationReader.forType(Config.class).read(new JsonTokenReader(new StringReader(json)));
+		// Then
+		assertThat(config.tags()).isEmpty();
+		assertThat(config.limits()).containsExactly(1L, 2L, 3L, 4L, 5L, 6L);
+	}
+
+	@Test
+	public void testResolveClassWithContextClassLoader() throws IOException {
+		// Given
+		Thread thread = Thread.currentThread();
+		ClassLoader contextClassLoader = thread.getContextClassLoader();
+		URL testClasses = AnnotationReaderTest.class.getProtectionDomain().getCodeSource().getLocation();
+		try (URLClassLoader isolated = new URLClassLoader(new URL[] { testClasses }, null)) {
+			thread.setContextClassLoader(isolated);
+			String json = "[{\"name\": \"n\", \"type\": \"" + AnnotationReaderTest.class.getName() + "\"},"
+					+ " {\"name\": \"n\", \"type\": \"" + Test.class.getName() + "\"}]";
+			List<Config> read = new ArrayList<>();
+
+			// When
+			AnnotationReader.forType(Config.class).readEach(new JsonTokenReader(new StringReader(json)), read::add);
+
+			// Then
+			assertThat(read.get(0).type().getClassLoader()).isSameAs(isolated);
+			assertThat(read.get(1).type()).isEqualTo(Test.class);
+		} finally {
+			thread.setContextClassLoader(contextClassLoader);
+		}
+	}
+
+	@Test
+	public void testReadEach() throws IOException {
+		// Given
+		String json = "[{\"value\": \"a\"}, {\"value\": \"b\"}]";
+		List<Inner> read = new ArrayList<>();
+		// When
+		AnnotationReader.forType(Inner.class).readEach(new JsonTokenReader(new StringReader(json)), read::add);
+		// Then
+		assertThat(read).extracting(Inner::value).containsExactly("a", "b");
+	}
+
+	@Test
+	public void testUnknownAttribute() {
+		// Given
+		String json = "{\"value\": \"a\",\n \"other\": 1}";
+		// When / Then
+		assertThatThrownBy(() -> AnnotationReader.forType(Inner.class).read(new JsonTokenReader(new StringReader(json))))
+				.isInstanceOf(AnnotationReadException.class)
+				.hasMessageContaining("No method other")
+				.hasMessageEndingWith("at line 2, column 2");
+	}
+
+	@Test
+	public void testDuplicateAttribute() {
+		// Given
+		String json = "{\"value\": \"a\", \"value\": \"b\"}";
+		// When / Then
+		assertThatThrownBy(() -> AnnotationReader.forType(Inner.class).read(new JsonTokenReader(new StringReader(json))))
+				.isInstanceOf(AnnotationReadException.class)
+				.hasMessageContaining("Duplicate value for value");
+	}
+
+	@Test
+	public void testWrongValueType() {
+		// Given
+		String json = "{\"name\": \"n\", \"size\": \"big\"}";
+		// When / Then
+		assertThatThrownBy(() -> AnnotationReader.forType(Config.class).read(new JsonTokenReader(new StringReader(json))))
+				.isInstanceOf(AnnotationReadException.class)
+				.hasMessageContaining("Expected NUMBER for int, got STRING")
+				.hasMessageEndingWith("at line 1, column 23");
+	}
+
+	@Test
+	public void testUnknownEnumConstant() {
+		// Given
+		String json = "{\"name\": \"n\", \"policy\": \"NONE\"}";
+		// When / Then
+		assertThatThrownBy(() -> AnnotationReader.forType(Config.class).read(new JsonTokenReader(new StringReader(json))))
+				.isInstanceOf(AnnotationReadException.class)
+				.hasMessageContaining("No constant NONE in class java.lang.annotation.RetentionPolicy");
+	}
+
+	@Test
+	public void testMissingValue() {
+		// Given
+		String json = "{\"size\": 3}";
+		// When / Then
+		assertThatThrownBy(() -> AnnotationReader.forType(Config.class).read(new JsonTokenReader(new StringReader(json))))
+				.isInstanceOf(AnnotationReadException.class)
+				.hasMessageContaining("no value for")
+				.hasMessageEndingWith("at line 1, column 1");
+	}
+
+	@Test
+	public void testJsonSyntaxError() {
+		// Given
+		String json = "{\"value\" \"a\"}";
+		// When / Then
+		assertThatThrownBy(() -> AnnotationReader.forType(Inner.class).read(new JsonTokenReader(new StringReader(json))))
+				.isInstanceOf(AnnotationReadException.class)
+				.hasMessageContaining("Expected ':'");
+	}
+}
@@ -0,0 +1,130 @@
+package io.joj.reflect.annotation;
+
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.lang.annotation.Annotation;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+import org.testng.annotations.Test;
+
+/**
+ * @author findepi
+ */
+public class AnnotationSetTest {
+
+	@Retention(RetentionPolicy.RUNTIME)
+	private @interface Named {
+		String value();
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	private @interface Marker {
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Repeatable(Tags.class)
+	private @interface Tag {
+		String value();
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	private @interface Tags {
+		Tag[] value();
+	}
+
+	@Named("compiled")
+	@Tag("a")
+	@Tag("b")
+	private static class Compiled {
+	}
+
+	@Test
+	public void testLookupByType() {
+		// Given
+		Named named = AnnotationBuilder.buildFromMap(Named.class, singletonMap("value", "x"));
+		Marker marker = AnnotationBuilder.buildFromMap(Marker.class, emptyMap());
+		// When
+		AnnotationSet set = AnnotationSet.of(named, marker);
+		// Then
+		assertThat(set.size()).isEqualTo(2);
+		assertThat(set.getAnnotation(Named.class)).isSameAs(named);
+		assertThat(set.getAnnotation(Marker.class)).isSameAs(marker);
+		assertThat(set.getAnnotation(Tag.class)).isNull();
+		assertThat(set.isAnnotationPresent(Marker.class)).isTrue();
+		assertThat(set.getAnnotations()).containsExactly(named, marker);
+		assertThat(set.getAnnotationsByType(Named.class)).containsExactly(named);
+		assertThat(set.getAnnotationsByType(Tag.class)).isEmpty();
+	}
+
+	@Test
+	public void testGetAnnotationsReturnsCopy() {
+		// Given
+		AnnotationSet set = AnnotationSet.of(named("x"));
+		// When
+		Annotation[] annotations = set.getAnnotations();
+		annotations[0] = null;
+		// Then
+		assertThat(set.getAnnotations()).containsExactly(named("x"));
+	}
+
+	@Test
+	public void testRepeatableAnnotations() {
+		// When
+		AnnotationSet set = AnnotationSet.of(tag("a"), named("compiled"), tag("b"));
+		// Then
+		assertThat(set.getAnnotation(Tag.class)).isNull();
+		assertThat(set.getAnnotation(Tags.class).value()).containsExactly(tag("a"), tag("b"));
+		assertThat(set.getAnnotationsByType(Tag.class)).containsExactly(tag("a"), tag("b"));
+		assertThat(set).isEqualTo(AnnotationSet.of(Compiled.class.getAnnotations()));
+		assertThat(set.getAnnotationsByType(Tag.class))
+				.containsExactly(Compiled.class.getAnnotationsByType(Tag.class));
+	}
+
+	@Test
+	public void testEmptyContainer() {
+		// Given
+		@Tags({})
+		class EmptyTags {
+		}
+
+		// When
+		AnnotationSet set = AnnotationSet.of(EmptyTags.class.getAnnotations());
+
+		// Then
+		assertThat(set.getAnnotation(Tags.class).value()).isEmpty();
+		assertThat(set.getAnnotationsByType(Tag.class)).isEmpty();
+		assertThat(set.getAnnotationsByType(Tag.class)).isEqualTo(EmptyTags.class.getAnnotationsByType(Tag.class));
+	}
+
+	@Test
+	public void testRejectDuplicateNonRepeatable() {
+		assertThatThrownBy(() -> AnnotationSet.of(named("a"), named("b")))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("Duplicate annotation");
+	}
+
+	@Test
+	public void testManyAnnotations() {
+		// When
+		AnnotationSet set = AnnotationSet.of(Compiled.class.getAnnotations());
+		AnnotationSet empty = AnnotationSet.of();
+		// Then
+		assertThat(set.getAnnotation(Named.class).value()).isEqualTo("compiled");
+		assertThat(set.getAnnotationsByType(Tag.class)).hasSize(2);
+		assertThat(empty.getAnnotations()).isEmpty();
+		assertThat(empty.getAnnotation(Named.class)).isNull();
+	}
+
+	private static Named named(String value) {
+		return AnnotationBuilder.buildFromMap(Named.class, singletonMap("value", value));
+	}
+
+	private static Tag tag(String value) {
+		return AnnotationBuilder.buildFromMap(Tag.class, singletonMap("value", value));
+	}
+}
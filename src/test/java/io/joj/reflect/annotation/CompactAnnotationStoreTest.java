@@ -0,0 +1,150 @@
+package io.joj.reflect.annotation;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.assertj.core.api.Assertions;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * @author findepi
+ */
+public class CompactAnnotationStoreTest {
+
+	@Retention(RetentionPolicy.RUNTIME)
+	private @interface Mixed {
+		int number();
+
+		long big() default 42L;
+
+		char letter() default 'x';
+
+		boolean flag() default true;
+
+		float weight() default 1.5f;
+
+		double ratio() default 0.5;
+
+		String name();
+
+		String[] tags() default {};
+
+		TimeUnit unit() default TimeUnit.SECONDS;
+	}
+
+	@Test
+	public void testValues() {
+		// Given
+		CompactAnnotationStore<Mixed> store = CompactAnnotationStore.create(Mixed.class);
+		// When
+		Mixed mixed = store.add(ImmutableMap.of(
+				"number", 7,
+				"name", "seven",
+				"tags", new String[] { "a", "b" }));
+		// Then
+		assertEquals(store.size(), 1);
+		assertEquals(mixed.number(), 7);
+		assertEquals(mixed.big(), 42L);
+		assertEquals(mixed.letter(), 'x');
+		assertEquals(mixed.flag(), true);
+		assertEquals(mixed.weight(), 1.5f);
+		assertEquals(mixed.ratio(), 0.5);
+		assertEquals(mixed.name(), "seven");
+		assertEquals(mixed.tags(), new String[] { "a", "b" });
+		assertEquals(mixed.unit(), TimeUnit.SECONDS);
+		assertEquals(mixed.annotationType(), Mixed.class);
+	}
+
+	@Test
+	public void testEquivalentToBuilt() {
+		// Given
+		CompactAnnotationStore<Mixed> store = CompactAnnotationStore.create(Mixed.class);
+		ImmutableMap<String, Object> values = ImmutableMap.of(
+				"number", 7,
+				"name", "seven",
+				"big", -3L,
+				"weight", -0.0f,
+				"tags", new String[] { "a", "b" });
+		// When
+		Mixed compact = store.add(values);
+		Mixed built = AnnotationBuilder.buildFromMap(Mixed.class, values);
+		// Then
+		assertEquals(compact.hashCode(), built.hashCode());
+		assertEquals(compact.toString(), built.toString());
+		assertTrue(compact.equals(built), "compact should be equal to built");
+		assertTrue(built.equals(compact), "built should be equal to compact");
+	}
+
+	@Test
+	public void testEqualsWithinStore() {
+		// Given
+		CompactAnnotationStore<Mixed> store = CompactAnnotationStore.create(Mixed.class);
+		// When
+		for (int i = 0; i < 100; i++) {
+			store.add(ImmutableMap.of("number", i % 10, "name", "n" + i % 10));
+		}
+		// Then
+		assertEquals(store.size(), 100);
+		assertEquals(store.get(3), store.get(13));
+		assertEquals(store.get(3).hashCode(), store.get(13).hashCode());
+		assertNotEquals(store.get(3), store.get(4));
+	}
+
+	@Test
+	public void testEqualsCompilerProduced() {
+		// Given
+		@Mixed(number = 1, name = "one", tags = "t", unit = TimeUnit.DAYS)
+		class Sample {
+		}
+		Mixed compiled = Sample.class.getAnnotation(Mixed.class);
+		CompactAnnotationStore<Mixed> store = CompactAnnotationStore.create(Mixed.class);
+		// When
+		Mixed compact = store.add(ImmutableMap.of(
+				"number", 1,
+				"name", "one",
+				"tags", new String[] { "t" },
+				"unit", TimeUnit.DAYS));
+		// Then
+		assertEquals(compact.hashCode(), compiled.hashCode());
+		assertTrue(compact.equals(compiled), "compact should be equal to compiled");
+		assertTrue(compiled.equals(compact), "compiled should be equal to compact");
+	}
+
+	@Test
+	public void testCloneArrays() {
+		// Given
+		CompactAnnotationStore<Mixed> store = CompactAnnotationStore.create(Mixed.class);
+		String[] tags = { "a" };
+		Mixed mixed = store.add(ImmutableMap.of("number", 1, "name", "one", "tags", tags));
+		// When
+		tags[0] = "changed";
+		Arrays.fill(mixed.tags(), "changed");
+		// Then
+		assertEquals(mixed.tags(), new String[] { "a" });
+	}
+
+	@Test
+	public void testRejectInvalid() {
+		// Given
+		CompactAnnotationStore<Mixed> store = CompactAnnotationStore.create(Mixed.class);
+		// When
+		Assertions.assertThatThrownBy(() -> store.add(ImmutableMap.of("number", 1)))
+				// Then
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageMatching(".*no value for .*\\bname\\b.*");
+		Assertions.assertThatThrownBy(() -> store.add(ImmutableMap.of("number", 1L, "name", "")))
+				.isInstanceOf(ClassCastException.class);
+		Assertions.assertThatThrownBy(() -> store.add(ImmutableMap.of("number", 1, "name", "", "extra", "")))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageMatching(".*\\[extra\\]");
+		assertEquals(store.size(), 0);
+	}
+}
@@ -0,0 +1,145 @@
+package io.joj.reflect.annotation;
+
+import static io.joj.reflect.annotation.SyntheticAnnotationCompleteness.NULL_WHERE_UNDEFINED;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * @author findepi
+ */
+public class SerializedAnnotationTest {
+
+	@Retention(RetentionPolicy.RUNTIME)
+	private @interface Inner {
+		String value();
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	private @interface Outer {
+		String name();
+
+		int weight() default 1;
+
+		long[] ids() default {};
+
+		Inner inner();
+	}
+
+	public interface CacheKey {
+		String region();
+
+		int shard();
+	}
+
+	@Outer(name = "a", ids = { 1, 2 }, inner = @Inner("in"))
+	private static class Annotated {
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		// Given
+		Outer outer = outer();
+
+		// When
+		Object copy = roundTrip(outer);
+
+		// Then
+		assertThat(copy).isInstanceOf(Outer.class);
+		assertThat(copy).isEqualTo(outer);
+		assertThat(copy).isEqualTo(Annotated.class.getAnnotation(Outer.class));
+		assertThat(copy.hashCode()).isEqualTo(outer.hashCode());
+		assertThat(((Outer) copy).ids()).containsExactly(1, 2);
+		assertThat(((Outer) copy).weight()).isEqualTo(1);
+	}
+
+	@Test
+	public void testDeserializedInterned() throws Exception {
+		// When
+		Object first = roundTrip(outer());
+		Object second = roundTrip(outer());
+
+		// Then
+		assertThat(second).isSameAs(first);
+		assertThat(((Outer) second).inner()).isSameAs(((Outer) first).inner());
+	}
+
+	@Test
+	public void testIncomplete() throws Exception {
+		// Given
+		Outer incomplete = AnnotationBuilder.buildFromMap(Outer.class, ImmutableMap.of("name", "a"),
+				NULL_WHERE_UNDEFINED);
+
+		// When
+		Outer copy = (Outer) roundTrip(incomplete);
+
+		// Then
+		assertThat(copy.name()).isEqualTo("a");
+		assertThat(copy.inner()).isNull();
+	}
+
+	@Test
+	public void testValueObject() throws Exception {
+		// Given
+		CacheKey key = ValueObjectBuilder.builderFor(CacheKey.class)
+				.with(CacheKey::region).returning("eu")
+				.with(CacheKey::shard).returning(3)
+				.build();
+
+		// When
+		Object copy = roundTrip(key);
+
+		// Then
+		assertThat(copy).isInstanceOf(CacheKey.class);
+		assertThat(copy).isEqualTo(key);
+	}
+
+	@Test
+	public void testCompactStoreHandle() throws Exception {
+		// Given
+		CompactAnnotationStore<Outer> store = CompactAnnotationStore.create(Outer.class);
+		Outer handle = store.add(ImmutableMap.of(
+				"name", "a",
+				"ids", new long[] { 1, 2 },
+				"inner", AnnotationBuilder.buildFromMap(Inner.class, ImmutableMap.of("value", "in"))));
+
+		// When
+		Object copy = roundTrip(handle);
+
+		// Then
+		assertThat(copy).isEqualTo(handle);
+		assertThat(SyntheticAnnotationInvocationHandler.handlerOf(copy)).isNotNull();
+	}
+
+	private static Outer outer() {
+		return AnnotationBuilder.builderFor(Outer.class)
+				.with(Outer::name).returning("a")
+				.with(Outer::ids).returning(new long[] { 1, 2 })
+				.with(Outer::inner).returning(AnnotationBuilder.builderFor(Inner.class)
+						.with(Inner::value).returning("in")
+						.build())
+				.build();
+	}
+
+	private static Object roundTrip(Object object) throws IOException, ClassNotFoundException {
+		assertThat(object).isInstanceOf(Serializable.class);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(object);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			return in.readObject();
+		}
+	}
+}
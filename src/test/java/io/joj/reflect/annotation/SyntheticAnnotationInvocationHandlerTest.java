@@ -1,5 +1,6 @@
 package io.joj.reflect.annotation;
 
+import static io.joj.reflect.annotation.SyntheticAnnotationCompleteness.NULL_WHERE_UNDEFINED;
 import static io.joj.reflect.annotation.SyntheticAnnotationCompleteness.REQUIRE_COMPLETE;
 import static java.lang.String.format;
 import static java.util.Collections.emptyMap;
@@ -50,6 +51,32 @@ public class SyntheticAnnotationInvocationHandlerTest {
 		String third();
 	}
 
+	@Retention(RetentionPolicy.RUNTIME)
+	private @interface TestAnnotationWithPrimitives {
+		boolean z();
+
+		byte b();
+
+		char c();
+
+		short s();
+
+		int i();
+
+		long j();
+
+		float f();
+
+		double d() default Double.NaN;
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	private @interface Route {
+		String path();
+
+		String method();
+	}
+
 	@Test
 	public void testAnnotationType() {
 		// When
@@ -158,6 +185,91 @@ public class SyntheticAnnotationInvocationHandlerTest {
 		assertFalse(ih.equalsImpl(new Object(), differentStatic), "should compare inequal to differentStatic");
 	}
 
+	@Test
+	public void testHashCodeAndEqualsWithDefaultsOverridden() {
+		// Given
+		TestAnnotationWith2DefaultsAnd1Mandatory defaulted = AnnotationBuilder.buildFromMap(
+				TestAnnotationWith2DefaultsAnd1Mandatory.class, ImmutableMap.of("third", "x"));
+		TestAnnotationWith2DefaultsAnd1Mandatory overriddenWithDefault = AnnotationBuilder.buildFromMap(
+				TestAnnotationWith2DefaultsAnd1Mandatory.class, ImmutableMap.of(
+						"first", TestAnnotationWith2DefaultsAnd1Mandatory.FIRST_DEFAULT_VALUE,
+						"third", "x"));
+		TestAnnotationWith2DefaultsAnd1Mandatory overridden = AnnotationBuilder.buildFromMap(
+				TestAnnotationWith2DefaultsAnd1Mandatory.class, ImmutableMap.of(
+						"second", "other",
+						"third", "x"));
+
+		// Then
+		assertEquals(overriddenWithDefault, defaulted);
+		assertEquals(defaulted, overriddenWithDefault);
+		assertEquals(overriddenWithDefault.hashCode(), defaulted.hashCode());
+		assertFalse(overridden.equals(defaulted), "should compare inequal when default overridden");
+		assertFalse(defaulted.equals(overridden), "should compare inequal when default overridden");
+		assertEquals(overridden.toString(), format("@%s(first=%s, second=other, third=x)",
+				TestAnnotationWith2DefaultsAnd1Mandatory.class.getName(),
+				TestAnnotationWith2DefaultsAnd1Mandatory.FIRST_DEFAULT_VALUE));
+	}
+
+	@Test
+	public void testHashCodeAndEqualsPrimitives() {
+		// Given
+		Map<String, Object> values = ImmutableMap.<String, Object> builder()
+				.put("z", true)
+				.put("b", (byte) -3)
+				.put("c", 'x')
+				.put("s", (short) 300)
+				.put("i", 100_000)
+				.put("j", 1L << 40)
+				.put("f", -0.0f)
+				.build();
+		@TestAnnotationWithPrimitives(z = true, b = -3, c = 'x', s = 300, i = 100_000, j = 1L << 40, f = -0.0f)
+		class SameSample {
+		}
+		@TestAnnotationWithPrimitives(z = true, b = -3, c = 'x', s = 300, i = 100_000, j = 1L << 40, f = 0.0f)
+		class DifferentSample {
+		}
+		Object sameButStatic = SameSample.class.getAnnotation(TestAnnotationWithPrimitives.class);
+		Object differentStatic = DifferentSample.class.getAnnotation(TestAnnotationWithPrimitives.class);
+
+		// When
+		TestAnnotationWithPrimitives annotation = AnnotationBuilder.buildFromMap(TestAnnotationWithPrimitives.class,
+				values);
+		TestAnnotationWithPrimitives other = AnnotationBuilder.buildFromMap(TestAnnotationWithPrimitives.class,
+				values);
+
+		// Then
+		assertEquals(annotation.hashCode(), sameButStatic.hashCode());
+		assertTrue(annotation.equals(sameButStatic), "should compare equal to sameButStatic");
+		assertTrue(sameButStatic.equals(annotation), "sameButStatic should compare equal");
+		assertTrue(annotation.equals(other), "should compare equal to other synthetic");
+		// floats compare by bits, as in Float.equals
+		assertFalse(annotation.equals(differentStatic), "should compare inequal to differentStatic");
+		assertTrue(Double.isNaN(annotation.d()));
+		assertEquals(annotation.j(), 1L << 40);
+		assertEquals(annotation.c(), 'x');
+	}
+
+	@Test
+	public void testEqualsIncomplete() {
+		// Given
+		@Route(path = "/a", method = "GET")
+		class Sample {
+		}
+		Route compiled = Sample.class.getAnnotation(Route.class);
+		Route synthetic = AnnotationBuilder.buildFromMap(Route.class, ImmutableMap.of("path", "/a", "method", "GET"));
+		synthetic.hashCode(); // cache the hash
+
+		// When
+		Route partial = AnnotationBuilder.buildFromMap(Route.class, singletonMap("method", "GET"),
+				NULL_WHERE_UNDEFINED);
+		partial.hashCode();
+
+		// Then only values present in partial are compared, regardless of how the other one is implemented
+		assertTrue(partial.equals(compiled), "should compare equal to compiled");
+		assertTrue(partial.equals(synthetic), "should compare equal to synthetic");
+		assertFalse(synthetic.equals(partial), "complete should compare inequal to partial");
+	}
+
 	@Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = ""
 			+ ".*no.* corresponding method in interface \\S*TestAnnotationWithDefault: \\[extramethod\\]")
 	public void testRejectUnmappedValue() {
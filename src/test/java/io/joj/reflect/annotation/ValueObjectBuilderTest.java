@@ -0,0 +1,126 @@
+package io.joj.reflect.annotation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * @author findepi
+ */
+public class ValueObjectBuilderTest {
+
+	public interface Keyed {
+		String region();
+	}
+
+	public interface CacheKey extends Keyed {
+		int shard();
+
+		String[] tags();
+
+		List<String> path();
+	}
+
+	public interface Base {
+		String b();
+	}
+
+	public interface Sub extends Base {
+		String a();
+	}
+
+	public interface WithDefaultMethod {
+		String name();
+
+		default String upperName() {
+			return name().toUpperCase();
+		}
+	}
+
+	@Test
+	public void testBuildValueObject() {
+		// When
+		CacheKey key = cacheKey("eu", 3);
+
+		// Then
+		assertThat(key.region()).isEqualTo("eu");
+		assertThat(key.shard()).isEqualTo(3);
+		assertThat(key.tags()).containsExactly("a");
+		assertThat(key.path()).containsExactly("x", "y");
+		assertThat(key.toString()).isEqualTo("CacheKey[path=[x, y], region=eu, shard=3, tags=[a]]");
+	}
+
+	@Test
+	public void testHashCodeAndEquals() {
+		// Given
+		CacheKey key = cacheKey("eu", 3);
+		CacheKey same = ValueObjectBuilder.buildFromMap(CacheKey.class, ImmutableMap.of(
+				"region", "eu",
+				"shard", 3,
+				"tags", new String[] { "a" },
+				"path", ImmutableList.of("x", "y")));
+		CacheKey different = cacheKey("us", 3);
+
+		// Then
+		assertThat(key).isEqualTo(same);
+		assertThat(key.hashCode()).isEqualTo(same.hashCode());
+		assertThat(key).isNotEqualTo(different);
+	}
+
+	@Test
+	public void testNotEqualToSubInterfaceValue() {
+		// Given
+		Base base = ValueObjectBuilder.builderFor(Base.class)
+				.with(Base::b).returning("x")
+				.build();
+		Sub sub = ValueObjectBuilder.builderFor(Sub.class)
+				.with(Sub::a).returning("x")
+				.with(Sub::b).returning("x")
+				.build();
+
+		// Then
+		assertThat(base.equals(sub)).isFalse();
+		assertThat(sub.equals(base)).isFalse();
+	}
+
+	@Test
+	public void testArraysAreCopied() {
+		// Given
+		CacheKey key = cacheKey("eu", 3);
+		// When
+		key.tags()[0] = "changed";
+		// Then
+		assertThat(key.tags()).containsExactly("a");
+	}
+
+	@Test
+	public void testRejectIncomplete() {
+		assertThatThrownBy(() -> ValueObjectBuilder.builderFor(CacheKey.class)
+				.with(CacheKey::region).returning("eu")
+				.build())
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("no value for");
+	}
+
+	@Test
+	public void testRejectDefaultMethods() {
+		assertThatThrownBy(() -> ValueObjectBuilder.builderFor(WithDefaultMethod.class))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("Default methods are not supported");
+	}
+
+	private static CacheKey cacheKey(String region, int shard) {
+		return ValueObjectBuilder.builderFor(CacheKey.class)
+				.with(CacheKey::region).returning(region)
+				.with(CacheKey::shard).returning(shard)
+				.with(CacheKey::tags).returning(new String[] { "a" })
+				.with(CacheKey::path).returning(ImmutableList.of("x", "y"))
+				.build();
+	}
+}
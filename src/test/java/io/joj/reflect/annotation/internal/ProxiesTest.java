@@ -0,0 +1,99 @@
+package io.joj.reflect.annotation.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.function.Supplier;
+
+import org.testng.annotations.Test;
+
+/**
+ * @author findepi
+ */
+public class ProxiesTest {
+
+	public interface Greeter {
+		String greet();
+	}
+
+	private static final InvocationHandler hello = (proxy, method, args) -> "hello";
+
+	@Test
+	public void testReuseProxyClass() {
+		// When
+		Greeter first = Proxies.newProxyInstance(Greeter.class, hello);
+		Greeter second = Proxies.newProxyInstance(Greeter.class, hello);
+		// Then
+		assertEquals(first.greet(), "hello");
+		assertSame(first.getClass(), second.getClass());
+	}
+
+	@Test
+	public void testContextLoaderNotSeeingInterface() throws Exception {
+		try (URLClassLoader isolated = new URLClassLoader(new URL[0], null)) {
+			// When
+			Greeter greeter = withContextClassLoader(isolated, () -> Proxies.newProxyInstance(Greeter.class, hello));
+			// Then
+			assertEquals(greeter.greet(), "hello");
+			assertSame(greeter.getClass().getClassLoader(), Greeter.class.getClassLoader());
+		}
+	}
+
+	@Test
+	public void testContextLoaderSeeingInterface() throws Exception {
+		try (URLClassLoader child = new URLClassLoader(new URL[0], Greeter.class.getClassLoader())) {
+			// When
+			Greeter greeter = withContextClassLoader(child, () -> Proxies.newProxyInstance(Greeter.class, hello));
+			// Then
+			assertEquals(greeter.greet(), "hello");
+			assertSame(greeter.getClass().getClassLoader(), child);
+		}
+	}
+
+	@Test
+	public void testNoContextLoader() {
+		// When
+		Greeter greeter = withContextClassLoader(null, () -> Proxies.newProxyInstance(Greeter.class, hello));
+		// Then
+		assertEquals(greeter.greet(), "hello");
+	}
+
+	@Test
+	public void testNonPublicInterface() {
+		// When
+		Runnable runnable = Proxies.newProxyInstance(Runnable.class, (proxy, method, args) -> null);
+		PackagePrivate packagePrivate = Proxies.newProxyInstance(PackagePrivate.class, (proxy, method, args) -> 42);
+		// Then
+		runnable.run();
+		assertEquals(packagePrivate.answer(), 42);
+	}
+
+	@Test
+	public void testSerializableProxyOfPlatformInterface() {
+		// When
+		Runnable runnable = withContextClassLoader(null,
+				() -> Proxies.newSerializableProxyInstance(Runnable.class, (proxy, method, args) -> null));
+		// Then
+		assertTrue(runnable instanceof SerializableProxy);
+		assertSame(runnable.getClass().getClassLoader(), SerializableProxy.class.getClassLoader());
+	}
+
+	interface PackagePrivate {
+		int answer();
+	}
+
+	private static <T> T withContextClassLoader(ClassLoader loader, Supplier<T> action) {
+		Thread thread = Thread.currentThread();
+		ClassLoader original = thread.getContextClassLoader();
+		thread.setContextClassLoader(loader);
+		try {
+			return action.get();
+		} finally {
+			thread.setContextClassLoader(original);
+		}
+	}
+}
@@ -0,0 +1,201 @@
+package io.joj.reflect.annotation.processing;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.assertj.core.api.Assertions;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+import io.joj.reflect.annotation.AnnotationBuilder;
+import io.joj.reflect.annotation.SyntheticAnnotationCompleteness;
+
+/**
+ * @author findepi
+ */
+@GenerateAnnotationImplementations({
+		AnnotationImplementationProcessorTest.Marker.class,
+		AnnotationImplementationProcessorTest.Sample.class,
+})
+public class AnnotationImplementationProcessorTest {
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@interface Marker {
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@interface Sample {
+		String value();
+
+		int number() default 7;
+
+		char letter() default 'q';
+
+		double ratio() default 0.25;
+
+		long[] longs() default { 1, 2 };
+
+		TimeUnit unit() default TimeUnit.HOURS;
+
+		Class<? extends Number> type() default Integer.class;
+
+		Marker marker() default @Marker;
+	}
+
+	@Marker
+	@Sample(value = "x", number = 3)
+	private static class Annotated {
+	}
+
+	@Test
+	public void testBuilder() {
+		// When
+		Sample sample = AnnotationImplementationProcessorTest_SampleBuilder.builder()
+				.value("x")
+				.number(3)
+				.build();
+		// Then
+		assertEquals(sample.getClass(), AnnotationImplementationProcessorTest_SampleImpl.class);
+		assertEquals(sample.value(), "x");
+		assertEquals(sample.number(), 3);
+		assertEquals(sample.letter(), 'q');
+		assertEquals(sample.ratio(), 0.25);
+		assertEquals(sample.longs(), new long[] { 1, 2 });
+		assertEquals(sample.unit(), TimeUnit.HOURS);
+		assertEquals(sample.type(), Integer.class);
+		assertEquals(sample.marker(), Annotated.class.getAnnotation(Marker.class));
+		assertEquals(sample.annotationType(), Sample.class);
+	}
+
+	@Test
+	public void testContractConformsToCompiled() {
+		// Given
+		Sample compiled = Annotated.class.getAnnotation(Sample.class);
+		// When
+		Sample generated = AnnotationImplementationProcessorTest_SampleBuilder.builder()
+				.value("x")
+				.number(3)
+				.build();
+		// Then
+		assertEquals(generated.hashCode(), compiled.hashCode());
+		assertTrue(generated.equals(compiled), "generated should be equal to compiled");
+		assertTrue(compiled.equals(generated), "compiled should be equal to generated");
+		assertFalse(generated.equals(AnnotationImplementationProcessorTest_SampleBuilder.builder()
+				.value("y")
+				.build()));
+	}
+
+	@Test
+	public void testContractConformsToProxy() {
+		// Given
+		Sample generated = AnnotationImplementationProcessorTest_SampleBuilder.builder()
+				.value("x")
+				.longs(new long[] { 5 })
+				.build();
+		// When
+		Sample proxy = AnnotationBuilder.builderFor(Sample.class)
+				.with(Sample::value).returning("x")
+				.with(Sample::longs).returning(new long[] { 5 })
+				.completeness(SyntheticAnnotationCompleteness.NULL_WHERE_UNDEFINED)
+				.build();
+		// Then
+		assertEquals(generated.toString(), proxy.toString());
+		assertEquals(generated.hashCode(), proxy.hashCode());
+		assertTrue(generated.equals(proxy), "generated should be equal to proxy");
+		assertTrue(proxy.equals(generated), "proxy should be equal to generated");
+	}
+
+	@Test
+	public void testBuilderForUsesGenerated() {
+		// When
+		Sample sample = AnnotationBuilder.builderFor(Sample.class)
+				.with(Sample::value).returning("x")
+				.build();
+		Marker marker = AnnotationBuilder.buildFromMap(Marker.class, Collections.emptyMap());
+		// Then
+		assertEquals(sample.getClass(), AnnotationImplementationProcessorTest_SampleImpl.class);
+		assertEquals(marker.getClass(), AnnotationImplementationProcessorTest_MarkerImpl.class);
+		assertEquals(marker, Annotated.class.getAnnotation(Marker.class));
+	}
+
+	@Test
+	public void testFactoryLookedUpPerContextClassLoader() throws Exception {
+		// Given
+		Thread thread = Thread.currentThread();
+		ClassLoader contextClassLoader = thread.getContextClassLoader();
+		Sample outside;
+		try (URLClassLoader isolated = new URLClassLoader(new URL[0], null)) {
+			thread.setContextClassLoader(isolated);
+			// When
+			outside = AnnotationBuilder.builderFor(Sample.class)
+					.with(Sample::value).returning("x")
+					.build();
+		} finally {
+			thread.setContextClassLoader(contextClassLoader);
+		}
+		Sample inside = AnnotationBuilder.builderFor(Sample.class)
+				.with(Sample::value).returning("x")
+				.build();
+
+		// Then
+		assertNotEquals(outside.getClass(), AnnotationImplementationProcessorTest_SampleImpl.class);
+		assertEquals(inside.getClass(), AnnotationImplementationProcessorTest_SampleImpl.class);
+		assertEquals(outside, inside);
+	}
+
+	@Test
+	public void testSerializable() throws Exception {
+		// Given
+		Sample generated = AnnotationBuilder.builderFor(Sample.class)
+				.with(Sample::value).returning("x")
+				.with(Sample::number).returning(3)
+				.build();
+		assertEquals(generated.getClass(), AnnotationImplementationProcessorTest_SampleImpl.class);
+
+		// When
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(generated);
+		}
+		Object copy;
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			copy = in.readObject();
+		}
+
+		// Then
+		assertEquals(copy, generated);
+		assertEquals(copy, Annotated.class.getAnnotation(Sample.class));
+		assertEquals(copy.hashCode(), generated.hashCode());
+	}
+
+	@Test
+	public void testValidation() {
+		Assertions.assertThatThrownBy(() -> AnnotationImplementationProcessorTest_SampleBuilder.builder().build())
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageMatching(".*no value for .*\\bvalue\\b.*");
+		Assertions.assertThatThrownBy(() -> AnnotationBuilder.buildFromMap(Sample.class, Collections.emptyMap()))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageMatching(".*no value for .*\\bvalue\\b.*");
+		Assertions.assertThatThrownBy(() -> AnnotationBuilder.buildFromMap(Sample.class, ImmutableMap.of(
+				"value", "x", "number", 3L)))
+				.isInstanceOf(ClassCastException.class);
+		Assertions.assertThatThrownBy(() -> AnnotationBuilder.buildFromMap(Sample.class, ImmutableMap.of(
+				"value", "x", "extra", 3L)))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageMatching(".*\\[extra\\]");
+	}
+}
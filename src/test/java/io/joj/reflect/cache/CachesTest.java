@@ -0,0 +1,46 @@
+package io.joj.reflect.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+import io.joj.reflect.annotation.AnnotationBuilder;
+
+/**
+ * @author findepi
+ */
+public class CachesTest {
+
+	@Retention(RetentionPolicy.RUNTIME)
+	private @interface Cached {
+		String value();
+	}
+
+	@Test
+	public void testListCaches() {
+		// When
+		// Then
+		assertThat(Caches.stats()).containsKeys("annotation-schemas", "interned-annotations", "method-references",
+				"proxy-classes");
+		assertThat(Caches.named("annotation-schemas").name()).isEqualTo("annotation-schemas");
+	}
+
+	@Test
+	public void testClearAll() {
+		// Given
+		Cached before = AnnotationBuilder.buildFromMap(Cached.class, ImmutableMap.of("value", "x"));
+
+		// When
+		Caches.clearAll();
+		Cached after = AnnotationBuilder.buildFromMap(Cached.class, ImmutableMap.of("value", "x"));
+
+		// Then
+		assertThat(after).isEqualTo(before);
+		assertThat(Caches.named("annotation-schemas").stats().missCount()).isGreaterThan(0);
+	}
+}
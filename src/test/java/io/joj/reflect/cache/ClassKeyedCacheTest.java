@@ -0,0 +1,102 @@
+package io.joj.reflect.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+/**
+ * @author findepi
+ */
+public class ClassKeyedCacheTest {
+
+	@Test
+	public void testComputeOnce() {
+		// Given
+		AtomicInteger computations = new AtomicInteger();
+		ClassKeyedCache<String> cache = new ClassKeyedCache<>("test", Cache.UNBOUNDED, type -> {
+			computations.incrementAndGet();
+			return type.getSimpleName();
+		});
+
+		// When
+		String first = cache.get(String.class);
+		String second = cache.get(String.class);
+
+		// Then
+		assertThat(first).isEqualTo("String");
+		assertThat(second).isSameAs(first);
+		assertThat(computations.get()).isEqualTo(1);
+		assertThat(cache.stats().hitCount()).isEqualTo(1);
+		assertThat(cache.stats().missCount()).isEqualTo(1);
+		assertThat(cache.size()).isEqualTo(1);
+	}
+
+	@Test
+	public void testNullValue() {
+		// Given
+		ClassKeyedCache<String> cache = new ClassKeyedCache<>("test", Cache.UNBOUNDED, type -> null);
+
+		// When
+		cache.get(String.class);
+		String value = cache.get(String.class);
+
+		// Then
+		assertThat(value).isNull();
+		assertThat(cache.stats().missCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void testClear() {
+		// Given
+		AtomicInteger computations = new AtomicInteger();
+		ClassKeyedCache<Integer> cache = new ClassKeyedCache<>("test", Cache.UNBOUNDED,
+				type -> computations.incrementAndGet());
+		cache.get(String.class);
+
+		// When
+		cache.clear();
+
+		// Then
+		assertThat(cache.size()).isEqualTo(0);
+		assertThat(cache.get(String.class)).isEqualTo(2);
+	}
+
+	@Test
+	public void testEvictLeastRecentlyUsed() {
+		// Given
+		AtomicInteger computations = new AtomicInteger();
+		ClassKeyedCache<Integer> cache = new ClassKeyedCache<>("test", 2, type -> computations.incrementAndGet());
+		cache.get(String.class);
+		cache.get(Integer.class);
+		// used again, gets second chance
+		cache.get(String.class);
+
+		// When
+		cache.get(Long.class);
+
+		// Then
+		assertThat(cache.size()).isEqualTo(2);
+		assertThat(cache.stats().evictionCount()).isEqualTo(1);
+		assertThat(cache.get(String.class)).isEqualTo(1);
+		assertThat(cache.get(Long.class)).isEqualTo(3);
+		assertThat(cache.get(Integer.class)).as("evicted, so recomputed").isEqualTo(4);
+	}
+
+	@Test
+	public void testShrink() {
+		// Given
+		ClassKeyedCache<String> cache = new ClassKeyedCache<>("test", Cache.UNBOUNDED, Class::getName);
+		cache.get(String.class);
+		cache.get(Integer.class);
+		cache.get(Long.class);
+
+		// When
+		cache.setMaximumSize(1);
+
+		// Then
+		assertThat(cache.size()).isEqualTo(1);
+		assertThat(cache.stats().evictionCount()).isEqualTo(2);
+	}
+}
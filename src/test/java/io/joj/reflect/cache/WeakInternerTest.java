@@ -0,0 +1,61 @@
+package io.joj.reflect.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.testng.annotations.Test;
+
+/**
+ * @author findepi
+ */
+public class WeakInternerTest {
+
+	@Test
+	public void testIntern() {
+		// Given
+		WeakInterner<String> interner = new WeakInterner<>("test", Cache.UNBOUNDED);
+		String first = new String("value");
+		String second = new String("value");
+
+		// When
+		String canonicalFirst = interner.intern(first);
+		String canonicalSecond = interner.intern(second);
+
+		// Then
+		assertThat(canonicalFirst).isSameAs(first);
+		assertThat(canonicalSecond).isSameAs(first);
+		assertThat(interner.stats().hitCount()).isEqualTo(1);
+		assertThat(interner.stats().missCount()).isEqualTo(1);
+		assertThat(interner.size()).isEqualTo(1);
+	}
+
+	@Test
+	public void testBounded() {
+		// Given
+		WeakInterner<Integer> interner = new WeakInterner<>("test", 16);
+		Integer[] values = new Integer[1000];
+
+		// When
+		for (int i = 0; i < values.length; i++) {
+			values[i] = interner.intern(i + 1000);
+		}
+
+		// Then
+		assertThat(interner.size()).isLessThanOrEqualTo(16);
+		assertThat(interner.stats().evictionCount()).isGreaterThanOrEqualTo(values.length - 16);
+	}
+
+	@Test
+	public void testClear() {
+		// Given
+		WeakInterner<String> interner = new WeakInterner<>("test", Cache.UNBOUNDED);
+		String first = new String("value");
+		interner.intern(first);
+
+		// When
+		interner.clear();
+		String second = new String("value");
+
+		// Then
+		assertThat(interner.intern(second)).isSameAs(second);
+	}
+}
@@ -0,0 +1,97 @@
+package io.joj.reflect.metrics;
+
+import static org.testng.Assert.assertEquals;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.assertj.core.api.Assertions;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+import io.joj.reflect.annotation.AnnotationBuilder;
+
+/**
+ * @author findepi
+ */
+@Test(singleThreaded = true)
+public class CountingSynthesisMetricsTest {
+
+	private @interface Tagged {
+		String[] value();
+	}
+
+	private CountingSynthesisMetrics metrics;
+
+	@BeforeMethod
+	public void setUp() {
+		metrics = new CountingSynthesisMetrics();
+		Metrics.install(metrics);
+	}
+
+	@AfterMethod(alwaysRun = true)
+	public void tearDown() {
+		Metrics.uninstall();
+	}
+
+	@Test
+	public void testCountBuildAndUse() {
+		// Given
+		Tagged tagged = AnnotationBuilder.builderFor(Tagged.class)
+				.with(Tagged::value).returning(new String[] { "a" })
+				.build();
+		// When
+		tagged.value();
+		tagged.value();
+		tagged.hashCode();
+		tagged.hashCode();
+		// Then
+		assertEquals(metrics.getAnnotationsBuilt(), ImmutableMap.of(Tagged.class.getName(), 1L));
+		assertEquals(metrics.getMethodReferenceResolutions(), 1);
+		assertEquals(metrics.getArrayClones(), 2);
+		assertEquals(metrics.getHashCodeComputations(), 1);
+		assertEquals(metrics.getHashCodeCacheHits(), 1);
+		assertEquals(metrics.getValidationFailures(), 0);
+	}
+
+	@Test
+	public void testCountValidationFailure() {
+		// When
+		Assertions.assertThatThrownBy(() -> AnnotationBuilder.buildFromMap(Tagged.class, Collections.emptyMap()))
+				.isInstanceOf(IllegalArgumentException.class);
+		// Then
+		assertEquals(metrics.getValidationFailures(), 1);
+		assertEquals(metrics.getAnnotationsBuilt(), Collections.emptyMap());
+	}
+
+	@Test
+	public void testReset() {
+		// Given
+		AnnotationBuilder.buildFromMap(Tagged.class, ImmutableMap.of("value", new String[0]));
+		// When
+		metrics.reset();
+		// Then
+		assertEquals(metrics.getAnnotationsBuilt(), Collections.emptyMap());
+	}
+
+	@Test
+	public void testRegisterMBean() throws Exception {
+		// Given
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		AnnotationBuilder.buildFromMap(Tagged.class, ImmutableMap.of("value", new String[0]));
+		// When
+		ObjectName name = metrics.registerMBean("io.joj.reflect:type=SynthesisMetrics,name=test");
+		try {
+			// Then
+			assertEquals(server.getAttribute(name, "ValidationFailures"), 0L);
+		} finally {
+			server.unregisterMBean(name);
+		}
+	}
+}